@@ -5,6 +5,7 @@
 package classes;
 
 import interfaces.IProgressBar;
+import interfaces.IRoad;
 import interfaces.StreamedContainer;
 import java.awt.Dimension;
 import java.awt.Font;
@@ -27,7 +28,7 @@ import javax.swing.event.DocumentListener;
  *
  * @author Daniel
  */
-public class AutoCompleter extends JTextField implements StreamedContainer<Road> {
+public class AutoCompleter extends JTextField implements StreamedContainer<IRoad> {
 
     private static final int searchDelay = 200; //Milliseconds
     private Timer typeTimer;
@@ -37,7 +38,7 @@ public class AutoCompleter extends JTextField implements StreamedContainer<Road>
     private JPopupMenu pop;
     private Road foundRoad;
     private String edgeToAdd;
-    private ArrayList<Road> edgesList = new ArrayList<>();
+    private ArrayList<IRoad> edgesList = new ArrayList<>();
     private final boolean startPointField;
     private final OptimizedView view;
     //private HashMap<String, Integer> addrMap;
@@ -127,10 +128,8 @@ public class AutoCompleter extends JTextField implements StreamedContainer<Road>
         pop.setPreferredSize(new Dimension(getWidth(), getHeight() * pop.getSubElements().length));
     }
 
-    private MenuItem createMenuItem(Road r, String text) {
-        Road tempR = r;
-        
-        MenuItem item = new MenuItem(r, text);
+    private MenuItem createMenuItem(IRoad r, String text) {
+        MenuItem item = new MenuItem(r.toRoad(), text);
         item.setFont(new Font(Font.DIALOG, Font.BOLD, 10));
         addMenuListener(item);
         item.setPreferredSize(new Dimension(getWidth(), getHeight()));
@@ -159,9 +158,9 @@ public class AutoCompleter extends JTextField implements StreamedContainer<Road>
             HashSet<String> usedRoads = new HashSet<>();
             String searchText = getText().toLowerCase();
             //Starting linear search through all the roads
-            for (Road edge : edgesList) {
-                String edgeName = edge.name;
-                int edgeZip = edge.zipCode;
+            for (IRoad edge : edgesList) {
+                String edgeName = edge.getName();
+                int edgeZip = edge.getZipCode();
                 String toAdd = edgeName+edgeZip;
 
                 if (edgeName.toLowerCase().startsWith(searchText)) {
@@ -219,7 +218,7 @@ public class AutoCompleter extends JTextField implements StreamedContainer<Road>
     public void endStream() { }
 
     @Override
-    public void add(Road obj) {
+    public void add(IRoad obj) {
             edgesList.add(obj);  
     }
 }
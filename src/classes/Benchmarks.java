@@ -0,0 +1,238 @@
+package classes;
+
+import classes.Viewport.Projection;
+import enums.IndexType;
+import interfaces.IProgressBar;
+import interfaces.IRoad;
+import interfaces.SpatialIndex;
+import interfaces.StreamedContainer;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * The Benchmarks class holds the measurements used to choose between the
+ * ways the program can walk, index and draw the roads. They are run from the
+ * command line on one of the data files:
+ * Benchmarks (segments|indices|rendering) [krak|osm|test]
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class Benchmarks {
+
+    /**
+     * Runs the given benchmark on the given data file (krak by default)
+     * @param args
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: Benchmarks (segments|indices|rendering) [krak|osm|test]");
+            return;
+        }
+        Datafile file = NewLoader.krakdata;
+        if (args.length > 1 && args[1].equals("osm")) {
+            file = NewLoader.osmdata;
+        } else if (args.length > 1 && args[1].equals("test")) {
+            file = NewLoader.osmtestfile;
+        }
+        Model model = NewLoader.loadData(file);
+        switch (args[0]) {
+            case "segments":
+                segments(model);
+                break;
+            case "indices":
+                indices(model);
+                break;
+            case "rendering":
+                rendering(model, Controller.defaultInstructions);
+                break;
+            default:
+                System.out.println("Unknown benchmark '"+args[0]+"'");
+        }
+        System.exit(0); // The window of the progress bar keeps Swing running
+    }
+
+    /**
+     * Returns every road of the model
+     */
+    private static FastArList<IRoad> allRoads(Model model) {
+        final FastArList<IRoad> roads = new FastArList<>();
+        model.getAllRoads(new StreamedContainer<IRoad>() {
+            @Override
+            public void startStream() {}
+            @Override
+            public void startStream(IProgressBar bar) {}
+            @Override
+            public void add(IRoad obj) {
+                roads.add(obj);
+            }
+            @Override
+            public void endStream() {}
+        });
+        return roads;
+    }
+
+    /**
+     * Compares the time and the allocated bytes of walking the segments of
+     * every road with Road's edge iterator and with a SegmentCursor
+     * @param model The model with the roads
+     */
+    public static void segments(Model model) {
+        FastArList<IRoad> roads = allRoads(model);
+        int passes = Math.max(10, 1000000 / Math.max(roads.size(), 1));
+        SegmentCursor cursor = new SegmentCursor();
+        for (int round = 0; round < 5; round++) { // The first rounds warm up
+            double sum = 0;
+            long bytes = allocatedBytes();
+            long t1 = System.nanoTime();
+            for (int pass = 0; pass < passes; pass++) {
+                for (IRoad road : roads) {
+                    Iterator<Road.Edge> edges = road.toRoad().iterator();
+                    while (edges.hasNext()) {
+                        sum += edges.next().driveTime;
+                    }
+                }
+            }
+            long t2 = System.nanoTime();
+            long iterBytes = allocatedBytes() - bytes;
+            bytes = allocatedBytes();
+            long t3 = System.nanoTime();
+            for (int pass = 0; pass < passes; pass++) {
+                for (IRoad road : roads) {
+                    cursor.reset(road);
+                    while (cursor.next()) {
+                        sum -= cursor.driveTime();
+                    }
+                }
+            }
+            long t4 = System.nanoTime();
+            long cursorBytes = allocatedBytes() - bytes;
+            System.out.printf("Per pass: iterator %.2f ms, %d bytes; cursor %.2f ms, %d bytes (%s)%n",
+                    (t2 - t1) / 1e6 / passes, iterBytes / passes,
+                    (t4 - t3) / 1e6 / passes, cursorBytes / passes, Math.abs(sum) < 1? "ok": "mismatch");
+        }
+    }
+
+    /**
+     * Compares the build time, memory and query time of each type of spatial
+     * index holding all the roads
+     * @param model The model with the roads
+     */
+    public static void indices(Model model) {
+        FastArList<IRoad> roads = allRoads(model);
+        Rect bounds = model.bounds;
+        Random random = new Random(42);
+        Rect[] queries = new Rect[3000];
+        for (int i = 0; i < queries.length; i++) {
+            // Views of 1%, 5% and 25% of the width of the map
+            float size = bounds.width * new float[] {0.01f, 0.05f, 0.25f}[i % 3];
+            queries[i] = new Rect(bounds.x + random.nextFloat() * (bounds.width - size),
+                    bounds.y + random.nextFloat() * (bounds.height - size), size, size);
+        }
+        final long[] found = new long[1];
+        StreamedContainer<IRoad> counter = new StreamedContainer<IRoad>() {
+            @Override
+            public void startStream() {}
+            @Override
+            public void startStream(IProgressBar bar) {}
+            @Override
+            public void add(IRoad obj) {
+                found[0]++;
+            }
+            @Override
+            public void endStream() {}
+        };
+        for (int round = 0; round < 3; round++) { // The first rounds warm up
+            for (IndexType type : IndexType.values()) {
+                long before = usedMemory();
+                long t1 = System.nanoTime();
+                SpatialIndex<IRoad> index = Model.createIndex(type, bounds);
+                for (IRoad road : roads) {
+                    index.add(road);
+                }
+                index.build();
+                long t2 = System.nanoTime();
+                long memory = usedMemory() - before;
+                found[0] = 0;
+                long t3 = System.nanoTime();
+                for (Rect query : queries) {
+                    index.getIn(query, counter);
+                }
+                long t4 = System.nanoTime();
+                System.out.printf("%s: built in %.1f ms, %.1f MB, %.1f us per query (%d roads found)%n",
+                        type, (t2 - t1) / 1e6,
+                        memory / 1e6, (t4 - t3) / 1e3 / queries.length, found[0]);
+            }
+        }
+    }
+
+    /**
+     * Compares the time it takes a RoadRenderer to draw the roads each on
+     * their own and in runs, at a range of zoom levels
+     * @param model The model with the roads
+     * @param ins The instructions for coloring the roads
+     */
+    public static void rendering(Model model, RenderInstructions ins) {
+        int width = 1600;
+        int height = 1000;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        RoadRenderer renderer = new RoadRenderer(ins);
+        Rect bounds = model.bounds;
+        float cx = bounds.x + bounds.width / 2;
+        float cy = bounds.y + bounds.height / 2;
+        float fit = Math.max(bounds.width / width, bounds.height / height);
+        int reps = 5;
+        for (float part : new float[] {1, 0.25f, 0.05f, 0.01f, 0.002f}) {
+            float upp = fit * part; // Meters per pixel
+            Rect source = new Rect(cx - width * upp / 2, cy - height * upp / 2,
+                    width * upp, height * upp);
+            Projection p = new Projection(source, new Rect(0, 0, width, height));
+            long[] times = new long[2];
+            for (int rep = 0; rep <= reps; rep++) { // The first is a warm-up
+                for (int mode = 0; mode < 2; mode++) {
+                    Graphics2D g2d = image.createGraphics();
+                    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g2d.setColor(OptimizedView.clearColor);
+                    g2d.fillRect(0, 0, width, height);
+                    renderer.setBatched(mode == 1);
+                    renderer.setTarget(g2d, p, height);
+                    long start = System.nanoTime();
+                    model.getRoads(renderer, p);
+                    if (rep > 0) {
+                        times[mode] += System.nanoTime() - start;
+                    }
+                    g2d.dispose();
+                }
+            }
+            System.out.printf("%8.1f m/px: single %7.1f ms, runs %7.1f ms%n", upp,
+                    times[0] / reps / 1e6, times[1] / reps / 1e6);
+        }
+    }
+
+    /**
+     * Returns the number of bytes the current thread has allocated, or -1 if
+     * the JVM can't tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the used heap memory after asking for a few collections
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
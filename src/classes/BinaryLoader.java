@@ -0,0 +1,306 @@
+package classes;
+
+import enums.RoadType;
+import interfaces.StreamedContainer;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The BinaryLoader class converts the text road files into a compact binary
+ * snapshot, and loads such snapshots through a memory mapped file. Loading a
+ * snapshot skips all of the string parsing done by the NewLoader. A snapshot
+ * records the size and modification time of the text file it was made from,
+ * so a snapshot of an older version of the file is noticed (see isCurrent).
+ *
+ * The snapshot consists of (all big-endian):
+ * - A header: magic and version (ints), the size and modification time of
+ *   the text file (longs), string count, node count, road count, vertex count
+ *   and drive time count (ints)
+ * - The string table: a length (int) and the UTF-8 bytes of each road name
+ * - The node table: all node ids (longs), then all x's and all y's (floats)
+ * - The road records: name index (int), type (byte), zip code (short),
+ *   speed limit (short), oneway (byte), vertex count (int), drive time count (int)
+ * - The vertices of all roads as indices into the node table (ints)
+ * - The drive times of all roads (floats)
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class BinaryLoader {
+
+    public static final int magic = 0x46595052; // 'FYPR'
+    public static final int version = 2;
+    private static final int headerSize = 7 * 4 + 2 * 8;
+    private static final int roadRecordSize = 4 + 1 + 2 + 2 + 1 + 4 + 4;
+
+    /**
+     * An exception for snapshots that cannot be read
+     */
+    public static class BadSnapshotException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BadSnapshotException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Converts the given text file into a binary snapshot at the target path
+     * @param file The text file to convert
+     * @param target Where to write the snapshot
+     * @throws java.io.IOException
+     * @throws classes.Utils.LoadFileException
+     */
+    public static void convert(Datafile file, Path target) throws IOException, Utils.LoadFileException {
+        if (file.binary) {
+            throw new RuntimeException("'"+file.filename+"' is already a snapshot");
+        }
+        // Parse the text file once, numbering the names and nodes as they come
+        ArrayList<Road> roads = new ArrayList<>();
+        HashMap<String, Integer> stringIndex = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+        LongMap<Integer> nodeIndex = new LongMap<>();
+        ArrayList<Road.Node> nodes = new ArrayList<>();
+        int vertexCount = 0;
+        int driveTimeCount = 0;
+        try (InputStream stream = Utils.getFileStream(file.filename);
+            InputStreamReader is = new InputStreamReader(stream, Charset.forName(file.charset));
+            BufferedReader br = new BufferedReader(is)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Road road = NewLoader.loadRoad(line);
+                roads.add(road);
+                if (!stringIndex.containsKey(road.name)) {
+                    stringIndex.put(road.name, strings.size());
+                    strings.add(road.name);
+                }
+                for (Road.Node node : road.nodes) {
+                    if (!nodeIndex.containsKey(node.id)) {
+                        nodeIndex.put(node.id, nodes.size());
+                        nodes.add(node);
+                    }
+                }
+                vertexCount += road.nodes.length;
+                driveTimeCount += road.drivetimes.length;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(target), 1 << 16))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            long[] stamp = sourceStamp(file);
+            out.writeLong(stamp[0]);
+            out.writeLong(stamp[1]);
+            out.writeInt(strings.size());
+            out.writeInt(nodes.size());
+            out.writeInt(roads.size());
+            out.writeInt(vertexCount);
+            out.writeInt(driveTimeCount);
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (Road.Node node : nodes) {
+                out.writeLong(node.id);
+            }
+            for (Road.Node node : nodes) {
+                out.writeFloat(node.x);
+            }
+            for (Road.Node node : nodes) {
+                out.writeFloat(node.y);
+            }
+            for (Road road : roads) {
+                out.writeInt(stringIndex.get(road.name));
+                out.writeByte(road.type.value);
+                out.writeShort(road.zipCode);
+                out.writeShort(road.speedLimit);
+                out.writeByte(road.oneway? 1: 0);
+                out.writeInt(road.nodes.length);
+                out.writeInt(road.drivetimes.length);
+            }
+            for (Road road : roads) {
+                for (Road.Node node : road.nodes) {
+                    out.writeInt(nodeIndex.get(node.id));
+                }
+            }
+            for (Road road : roads) {
+                for (float time : road.drivetimes) {
+                    out.writeFloat(time);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the size and modification time of the given text file, which
+     * a snapshot of it is stamped with
+     */
+    private static long[] sourceStamp(Datafile file) throws IOException, Utils.LoadFileException {
+        Path source = Utils.getFilePath(file.filename);
+        return new long[] {Files.size(source), Files.getLastModifiedTime(source).toMillis()};
+    }
+
+    /**
+     * Returns whether the snapshot of the given text file was made from the
+     * file as it is now. An unreadable or old-format snapshot is not current.
+     * @param file The text file
+     * @return Whether its snapshot is up to date
+     */
+    public static boolean isCurrent(Datafile file) {
+        try {
+            long[] stamp = sourceStamp(file);
+            Path path = Utils.getFilePath(file.snapshot().filename);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(headerSize);
+                while (header.hasRemaining() && channel.read(header) != -1) {}
+                header.flip();
+                return header.remaining() == headerSize && header.getInt() == magic
+                        && header.getInt() == version && header.getLong() == stamp[0]
+                        && header.getLong() == stamp[1];
+            }
+        } catch (IOException | Utils.LoadFileException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Memory maps the given snapshot and streams its roads to the target.
+     * The nodes of the snapshot are registered in NewLoader.loaded.
+     * @param file The snapshot to load
+     * @param target The container to stream the roads to
+     * @throws java.io.IOException
+     * @throws classes.Utils.LoadFileException
+     */
+    public static void loadRoads(Datafile file, StreamedContainer<Road> target)
+            throws IOException, Utils.LoadFileException {
+        if (!file.binary) {
+            throw new RuntimeException("'"+file.filename+"' is not a snapshot");
+        }
+        Path path = Utils.getFilePath(file.filename);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readRoads(buffer, target);
+        }
+    }
+
+    /**
+     * Reads the roads of a snapshot from the given buffer
+     * @param buffer The buffer holding the snapshot
+     * @param target The container to stream the roads to
+     */
+    private static void readRoads(ByteBuffer buffer, StreamedContainer<Road> target) {
+        if (buffer.remaining() < headerSize || buffer.getInt() != magic) {
+            throw new BadSnapshotException("The file is not a road snapshot");
+        }
+        int fileVersion = buffer.getInt();
+        if (fileVersion != version) {
+            throw new BadSnapshotException("Unsupported snapshot version "+fileVersion);
+        }
+        buffer.getLong(); // The stamp of the text file, see isCurrent
+        buffer.getLong();
+        int stringCount = buffer.getInt();
+        int nodeCount = buffer.getInt();
+        int roadCount = buffer.getInt();
+        int vertexCount = buffer.getInt();
+        int driveTimeCount = buffer.getInt();
+
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // The node table is read in bulk through typed views of the buffer
+        long[] ids = new long[nodeCount];
+        buffer.asLongBuffer().get(ids);
+        buffer.position(buffer.position() + nodeCount * 8);
+        float[] xs = new float[nodeCount];
+        float[] ys = new float[nodeCount];
+        FloatBuffer floats = buffer.asFloatBuffer();
+        floats.get(xs);
+        floats.get(ys);
+        buffer.position(buffer.position() + nodeCount * 8);
+        Road.Node[] nodes = new Road.Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = NewLoader.getNode(ids[i], xs[i], ys[i]);
+        }
+
+        // Find the vertex and drive time sections behind the road records
+        int recordStart = buffer.position();
+        int vertexStart = recordStart + roadCount * roadRecordSize;
+        int driveTimeStart = vertexStart + vertexCount * 4;
+        if (buffer.limit() < driveTimeStart + driveTimeCount * 4) {
+            throw new BadSnapshotException("The snapshot is truncated");
+        }
+        buffer.position(vertexStart);
+        IntBuffer vertices = buffer.asIntBuffer();
+        buffer.position(driveTimeStart);
+        FloatBuffer driveTimes = buffer.asFloatBuffer();
+        buffer.position(recordStart);
+
+        for (int r = 0; r < roadCount; r++) {
+            String      name        = strings[buffer.getInt()];
+            RoadType    type        = RoadType.fromValue(buffer.get());
+            short       zip         = buffer.getShort();
+            short       speedLimit  = buffer.getShort();
+            boolean     oneway      = buffer.get() != 0;
+            int         length      = buffer.getInt();
+            int         timeCount   = buffer.getInt();
+
+            Road.Node[] roadNodes = new Road.Node[length];
+            float minX = Float.MAX_VALUE;
+            float maxX = -Float.MAX_VALUE;
+            float minY = minX;
+            float maxY = maxX;
+            for (int i = 0; i < length; i++) {
+                Road.Node node = nodes[vertices.get()];
+                minX = (node.x < minX)? node.x: minX;
+                maxX = (node.x > maxX)? node.x: maxX;
+                minY = (node.y < minY)? node.y: minY;
+                maxY = (node.y > maxY)? node.y: maxY;
+                roadNodes[i] = node;
+            }
+            float[] times = new float[timeCount];
+            driveTimes.get(times);
+
+            target.add(new Road(name, type, zip, speedLimit, oneway, roadNodes,
+                    times, new Rect(minX, minY, maxX-minX, maxY-minY)));
+        }
+    }
+
+    /**
+     * Converts the given data sets into snapshots in the resource folder
+     * @param args
+     */
+    public static void main(String[] args) throws IOException, Utils.LoadFileException {
+        for (Datafile file : new Datafile[] {NewLoader.krakdata, NewLoader.osmdata}) {
+            if (!Utils.hasFile(file.filename)) {
+                System.out.println("Skipping '"+file.filename+"' (not found)");
+                continue;
+            }
+            Path target = Utils.getSourceDir().resolve(file.snapshot().filename);
+            long t1 = System.nanoTime();
+            convert(file, target);
+            System.out.println("Converted '"+file.filename+"' to '"+target+"' in "
+                    +(System.nanoTime()-t1)/1e9+" sec");
+        }
+    }
+}
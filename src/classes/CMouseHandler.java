@@ -7,6 +7,8 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.util.HashMap;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
 
 /**
  * The CMouseHandler class handles mouse-based input of the controller, which
@@ -29,6 +31,8 @@ public class CMouseHandler implements MouseListener, MouseMotionListener {
     private final OptimizedView view;
     private boolean isMarking = false;
     private boolean isDragging = false;
+    private boolean isMovingStart = false; // Whether a drag moves the start marker
+    private Future<?> pendingArea; // The reachable area being found, if any
     private HashMap<Integer, Boolean> isDown = new HashMap<>();;
     
     public CMouseHandler(Controller controller, OptimizedView target) {
@@ -50,6 +54,9 @@ public class CMouseHandler implements MouseListener, MouseMotionListener {
         startPos = e.getLocationOnScreen();
         startPos.translate(-view.getLocationOnScreen().x, -view.getLocationOnScreen().y);
         lastPos = startPos;
+        // Shift-dragging only moves the marker when there is an area to show
+        isMovingStart = button == dragButton && e.isShiftDown() 
+                && controller.routePanel.getReachLimit() > 0;
     }
     
     /**
@@ -103,7 +110,12 @@ public class CMouseHandler implements MouseListener, MouseMotionListener {
     public void mouseDragged(MouseEvent e) {
         Point newPos = e.getLocationOnScreen();
         newPos.translate(-view.getLocationOnScreen().x, -view.getLocationOnScreen().y);
-        if (isDown.get(dragButton)) {
+        if (isDown.get(dragButton) && isMovingStart) { // Drag the start marker
+            isDragging = true;
+            Viewport port = controller.viewport;
+            Finder.findNearestNode(port.getMapX(newPos.x), port.getMapY(newPos.y), 
+                    new ReachHelper(), controller);
+        } else if (isDown.get(dragButton)) {
             isDragging = true;
             Dimension viewSize = controller.viewport.getSize();
             newPos.x = (int)clamp(newPos.x, 0, viewSize.width);
@@ -127,7 +139,7 @@ public class CMouseHandler implements MouseListener, MouseMotionListener {
     private void findShortestPath() {
         if ((view.getPathStart() != null) && (view.getPathEnd() != null)) {
            // System.out.println("Finding shortest path!...");
-            Road.Edge[] path = PathFinder.findPath(controller.graph, view.getPathStart().id, view.getPathEnd().id);
+            Road.Edge[] path = PathFinder.findPath(controller.routing, view.getPathStart().id, view.getPathEnd().id);
             view.setPath(path);
             controller.routePanel.setRoute(path);
         }
@@ -140,9 +152,57 @@ public class CMouseHandler implements MouseListener, MouseMotionListener {
     private void setPathStart(Road.Node start) {
         controller.routePanel.setPathStart(start);
         view.setPathStart(start);
+        showReachableArea(start);
         findShortestPath();
     }
     
+    /**
+     * Shows the area that can be reached from the given node, if the user 
+     * has chosen a drive time for it. The area is found on the routing
+     * threads and shown once it is ready, unless the start has moved since.
+     * @param start The node to start at
+     */
+    private void showReachableArea(final Road.Node start) {
+        if (pendingArea != null) {
+            pendingArea.cancel(false); // It is outdated if it hasn't started
+            pendingArea = null;
+        }
+        int limit = controller.routePanel.getReachLimit();
+        if (limit <= 0 || start == null) {
+            view.setIsochrone(null);
+            return;
+        }
+        pendingArea = controller.routing.submitIsochrone(start.id, limit, 
+                new Receiver<Isochrone>() {
+            @Override
+            public void receive(final Isochrone area) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        Road.Node current = view.getPathStart();
+                        if (current != null && current.id == start.id) {
+                            view.setIsochrone(area);
+                        }
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * Moves the start marker while it is dragged, updating only the 
+     * reachable area (the route is found once it is released)
+     */
+    private class ReachHelper implements Receiver<Road.Node> {
+        @Override
+        public void receive(Road.Node obj) {
+            if (view.getPathStart() == null || obj.id != view.getPathStart().id) {
+                view.setPathStart(obj);
+                showReachableArea(obj);
+            }
+        }
+    }
+    
     /**
      * Sets where the path should end
      * @param end 
@@ -183,13 +243,16 @@ public class CMouseHandler implements MouseListener, MouseMotionListener {
         float mapY = port.getMapY(lastPos.y);
         switch(button) {
             case dragButton:
-                if (isDragging) {
+                if (isDragging && isMovingStart && view.getPathStart() != null) {
+                    setPathStart(view.getPathStart()); // The marker was dragged
+                } else if (isDragging) {
                     // Some easing movement here or something..?
                 } else {
                     // Set the starting position of the view
                     Finder.findNearestNode(mapX, mapY, new PositionHelper(true), controller);
                 }
                 isDragging = false;
+                isMovingStart = false;
                 break;
             case markButton:
                 if (isMarking) { // Don't attempt to zoom before clicking :u
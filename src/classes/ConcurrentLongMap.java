@@ -0,0 +1,145 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * The ConcurrentLongMap class is a thread safe map from primitive longs to
+ * objects. The keys are spread over a number of LongMap segments, which are
+ * locked separately, so threads working on different keys rarely wait for
+ * each other.
+ * @author agent
+ * @version 18-Oct-2026
+ * @param <V> The type of the values
+ */
+public class ConcurrentLongMap<V> implements Iterable<V> {
+
+    private static final int segmentBits = 6;
+    private final ArrayList<LongMap<V>> segments;
+
+    /**
+     * Constructor for the ConcurrentLongMap class
+     * @param expectedSize How many entries the map is expected to hold
+     */
+    public ConcurrentLongMap(int expectedSize) {
+        segments = new ArrayList<>(1 << segmentBits);
+        for (int i = 0; i < 1 << segmentBits; i++) {
+            segments.add(new LongMap<V>(expectedSize >> segmentBits));
+        }
+    }
+
+    /**
+     * Constructor for the ConcurrentLongMap class
+     */
+    public ConcurrentLongMap() {
+        this(1 << 10);
+    }
+
+    private LongMap<V> segment(long key) {
+        long h = key * 0xC2B2AE3D27D4EB4FL;
+        return segments.get((int)(h >>> (64 - segmentBits)));
+    }
+
+    /**
+     * Returns the value of the given key, or null if it isn't there
+     * @param key The key to look up
+     * @return The value of the key or null
+     */
+    public V get(long key) {
+        LongMap<V> segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * Returns whether the map contains the given key
+     * @param key The key to look for
+     * @return Whether the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to the given value
+     * @param key The key
+     * @param value The value (not null)
+     * @return The previous value of the key, or null
+     */
+    public V put(long key, V value) {
+        LongMap<V> segment = segment(key);
+        synchronized (segment) {
+            return segment.put(key, value);
+        }
+    }
+
+    /**
+     * Maps the key to the given value unless the key is already mapped
+     * @param key The key
+     * @param value The value (not null)
+     * @return The current value of the key, or null if the value was added
+     */
+    public V putIfAbsent(long key, V value) {
+        LongMap<V> segment = segment(key);
+        synchronized (segment) {
+            return segment.putIfAbsent(key, value);
+        }
+    }
+
+    /**
+     * Returns the number of entries in the map
+     * @return the number of entries in the map
+     */
+    public int size() {
+        int size = 0;
+        for (LongMap<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries of the map
+     */
+    public void clear() {
+        for (LongMap<V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private class ValueIter implements Iterator<V> {
+        int segment = 0;
+        Iterator<V> current = segments.get(0).iterator();
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && segment < segments.size() - 1) {
+                current = segments.get(++segment).iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public V next() {
+            hasNext();
+            return current.next();
+        }
+
+        @Override
+        public void remove() {throw new UnsupportedOperationException("Removal not supported");}
+    }
+
+    /**
+     * Iterates over the values of the map. The iteration is not thread safe,
+     * so it should only be used once the map is no longer modified.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new ValueIter();
+    }
+}
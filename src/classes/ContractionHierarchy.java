@@ -0,0 +1,538 @@
+package classes;
+
+import interfaces.IProgressBar;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The ContractionHierarchy class is a preprocessed form of a graph for fast
+ * route queries. The nodes are contracted one by one in order of importance,
+ * and shortcuts are added between the neighbours of a contracted node where
+ * the fastest route between them went through it. A query is then a
+ * bidirectional search that only ever goes to more important nodes (see
+ * SearchContext), and the shortcuts of the result are unpacked back into the
+ * arcs of the graph.
+ *
+ * The hierarchy is saved next to the road data, so it is only built once.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class ContractionHierarchy {
+
+    public static final String extension = ".ch";
+    private static final int magic = 0x46594348; // 'FYCH'
+    private static final int version = 2;
+    private static final long noNode = Long.MIN_VALUE; // Id of unused node indices
+    private static final int witnessLimit = 500; // Settled nodes per witness search
+
+    // The edges of the hierarchy, both the arcs of the graph and shortcuts
+    private int edgeCount = 0;
+    private int[] from;
+    private int[] to;
+    private float[] weights;
+    private int[] child1; // The first half of a shortcut, or -1 for a graph arc
+    private int[] child2; // The second half of a shortcut, or the graph arc
+    private final int[] rank; // The contraction order, by node index
+
+    // The search graphs. The upward edges are stored by their tail, the
+    // downward edges are reversed and stored by their head.
+    private int[] upOffsets;
+    private int[] upTargets;
+    private float[] upWeights;
+    private int[] upEdges;
+    private int[] downOffsets;
+    private int[] downTargets;
+    private float[] downWeights;
+    private int[] downEdges;
+
+    private ContractionHierarchy(int nodes, int edges) {
+        rank = new int[nodes];
+        from = new int[edges];
+        to = new int[edges];
+        weights = new float[edges];
+        child1 = new int[edges];
+        child2 = new int[edges];
+    }
+
+    /**
+     * Preprocesses the given graph into a contraction hierarchy
+     * @param graph The graph
+     * @param progbar A progress bar to update per contracted node, or null
+     * @return The contraction hierarchy of the graph
+     */
+    public static ContractionHierarchy build(Graph graph, IProgressBar progbar) {
+        int n = graph.size();
+        ContractionHierarchy ch = new ContractionHierarchy(n, graph.arcs() * 2);
+        for (int v = 0; v < n; v++) {
+            for (int arc = graph.adjStart(v); arc < graph.adjEnd(v); arc++) {
+                ch.addEdge(v, graph.other(arc), graph.weight(arc), -1, arc);
+            }
+        }
+        ch.new Contractor(n).run(progbar);
+        ch.buildSearchGraphs();
+        return ch;
+    }
+
+    private int addEdge(int u, int w, float weight, int first, int second) {
+        if (edgeCount == from.length) {
+            int size = from.length * 2 + 16;
+            from = Arrays.copyOf(from, size);
+            to = Arrays.copyOf(to, size);
+            weights = Arrays.copyOf(weights, size);
+            child1 = Arrays.copyOf(child1, size);
+            child2 = Arrays.copyOf(child2, size);
+        }
+        from[edgeCount] = u;
+        to[edgeCount] = w;
+        weights[edgeCount] = weight;
+        child1[edgeCount] = first;
+        child2[edgeCount] = second;
+        return edgeCount++;
+    }
+
+    /**
+     * The state needed while contracting the nodes
+     */
+    private class Contractor {
+        private final int n;
+        private final IntList[] out; // The edges leaving each node
+        private final IntList[] in; // The edges entering each node
+        private final boolean[] contracted;
+        private final int[] deleted; // The number of contracted neighbours
+
+        // The witness searches
+        private final float[] dist;
+        private final int[] stamps;
+        private int generation = 0;
+        private final IndexedHeap heap;
+
+        // The cheapest edge to each neighbour of the node being contracted
+        private final int[] bestIn;
+        private final int[] bestOut;
+        private final int[] inStamps;
+        private final int[] outStamps;
+        private int candidates = 0;
+        private final IntList inNodes = new IntList();
+        private final IntList outNodes = new IntList();
+
+        public Contractor(int n) {
+            this.n = n;
+            out = new IntList[n];
+            in = new IntList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new IntList(2);
+                in[v] = new IntList(2);
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                out[from[e]].add(e);
+                in[to[e]].add(e);
+            }
+            contracted = new boolean[n];
+            deleted = new int[n];
+            dist = new float[n];
+            stamps = new int[n];
+            heap = new IndexedHeap(n);
+            bestIn = new int[n];
+            bestOut = new int[n];
+            inStamps = new int[n];
+            outStamps = new int[n];
+        }
+
+        /**
+         * Finds the cheapest edges between v and its remaining neighbours
+         */
+        private void collectNeighbours(int v) {
+            candidates++;
+            inNodes.clear();
+            outNodes.clear();
+            IntList edges = in[v];
+            for (int i = 0; i < edges.size(); i++) {
+                int e = edges.get(i);
+                int u = from[e];
+                if (contracted[u] || u == v) { continue; }
+                if (inStamps[u] != candidates) {
+                    inStamps[u] = candidates;
+                    bestIn[u] = e;
+                    inNodes.add(u);
+                } else if (weights[e] < weights[bestIn[u]]) {
+                    bestIn[u] = e;
+                }
+            }
+            edges = out[v];
+            for (int i = 0; i < edges.size(); i++) {
+                int e = edges.get(i);
+                int w = to[e];
+                if (contracted[w] || w == v) { continue; }
+                if (outStamps[w] != candidates) {
+                    outStamps[w] = candidates;
+                    bestOut[w] = e;
+                    outNodes.add(w);
+                } else if (weights[e] < weights[bestOut[w]]) {
+                    bestOut[w] = e;
+                }
+            }
+        }
+
+        /**
+         * Runs a bounded Dijkstra from the source that doesn't pass 'avoid'
+         */
+        private void witnessSearch(int source, int avoid, float maxCost) {
+            generation++;
+            heap.clear();
+            stamps[source] = generation;
+            dist[source] = 0;
+            heap.offer(source, 0);
+            int settled = 0;
+            while (!heap.isEmpty() && heap.peekKey() <= maxCost && settled++ < witnessLimit) {
+                int x = heap.poll();
+                IntList edges = out[x];
+                for (int i = 0; i < edges.size(); i++) {
+                    int e = edges.get(i);
+                    int y = to[e];
+                    if (contracted[y] || y == avoid) { continue; }
+                    float d = dist[x] + weights[e];
+                    if (stamps[y] != generation || d < dist[y]) {
+                        stamps[y] = generation;
+                        dist[y] = d;
+                        heap.offer(y, d);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Counts (and optionally adds) the shortcuts needed to contract v
+         */
+        private int contract(int v, boolean simulate) {
+            collectNeighbours(v);
+            int shortcuts = 0;
+            for (int i = 0; i < inNodes.size(); i++) {
+                int u = inNodes.get(i);
+                float toV = weights[bestIn[u]];
+                float maxCost = 0;
+                boolean targets = false; // Whether v leads anywhere but back to u
+                for (int j = 0; j < outNodes.size(); j++) {
+                    int w = outNodes.get(j);
+                    if (w != u) {
+                        maxCost = Math.max(maxCost, toV + weights[bestOut[w]]);
+                        targets = true;
+                    }
+                }
+                if (!targets) { continue; } // Zero cost paths still need shortcuts
+                witnessSearch(u, v, maxCost);
+                for (int j = 0; j < outNodes.size(); j++) {
+                    int w = outNodes.get(j);
+                    float via = toV + weights[bestOut[w]];
+                    if (w == u || (stamps[w] == generation && dist[w] <= via)) {
+                        continue; // There is a route as fast without v
+                    }
+                    shortcuts++;
+                    if (!simulate) {
+                        int e = addEdge(u, w, via, bestIn[u], bestOut[w]);
+                        out[u].add(e);
+                        in[w].add(e);
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * The importance of a node: the edge difference of contracting it,
+         * plus how many of its neighbours are contracted already
+         */
+        private float priority(int v) {
+            int shortcuts = contract(v, true);
+            return shortcuts - inNodes.size() - outNodes.size() + deleted[v];
+        }
+
+        public void run(IProgressBar progbar) {
+            IndexedHeap order = new IndexedHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.offer(v, priority(v));
+            }
+            IntList neighbours = new IntList();
+            int[] marks = new int[n];
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                float p = priority(v);
+                if (!order.isEmpty() && p > order.peekKey()) {
+                    order.offer(v, p); // Lazy update: something is more important now
+                    continue;
+                }
+                contract(v, false);
+                contracted[v] = true;
+                rank[v] = next++;
+                neighbours.clear();
+                for (int i = 0; i < inNodes.size(); i++) {
+                    neighbours.add(inNodes.get(i));
+                    marks[inNodes.get(i)] = next;
+                }
+                for (int i = 0; i < outNodes.size(); i++) {
+                    if (marks[outNodes.get(i)] != next) {
+                        neighbours.add(outNodes.get(i));
+                    }
+                }
+                for (int i = 0; i < neighbours.size(); i++) {
+                    int u = neighbours.get(i);
+                    deleted[u]++;
+                    order.update(u, priority(u));
+                }
+                if (progbar != null) {
+                    progbar.update(1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the upward and downward search graphs from the edges
+     */
+    private void buildSearchGraphs() {
+        int n = rank.length;
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[from[e]] < rank[to[e]]) {
+                upOffsets[from[e] + 1]++;
+            } else {
+                downOffsets[to[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        upTargets = new int[upOffsets[n]];
+        upWeights = new float[upOffsets[n]];
+        upEdges = new int[upOffsets[n]];
+        downTargets = new int[downOffsets[n]];
+        downWeights = new float[downOffsets[n]];
+        downEdges = new int[downOffsets[n]];
+        int[] nextUp = Arrays.copyOf(upOffsets, n);
+        int[] nextDown = Arrays.copyOf(downOffsets, n);
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[from[e]] < rank[to[e]]) {
+                int i = nextUp[from[e]]++;
+                upTargets[i] = to[e];
+                upWeights[i] = weights[e];
+                upEdges[i] = e;
+            } else {
+                int i = nextDown[to[e]]++;
+                downTargets[i] = from[e];
+                downWeights[i] = weights[e];
+                downEdges[i] = e;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of edges in the hierarchy (arcs and shortcuts)
+     * @return the number of edges in the hierarchy
+     */
+    public int edges() {
+        return edgeCount;
+    }
+
+    /** The first upward edge of v, for the forward search */
+    public int upStart(int v) { return upOffsets[v]; }
+    /** The end of the upward edges of v */
+    public int upEnd(int v) { return upOffsets[v + 1]; }
+    /** The more important node an upward edge leads to */
+    public int upTarget(int i) { return upTargets[i]; }
+    /** The drive time of an upward edge */
+    public float upWeight(int i) { return upWeights[i]; }
+    /** The hierarchy edge of an upward edge */
+    public int upEdge(int i) { return upEdges[i]; }
+
+    /** The first downward edge into v, for the backward search */
+    public int downStart(int v) { return downOffsets[v]; }
+    /** The end of the downward edges into v */
+    public int downEnd(int v) { return downOffsets[v + 1]; }
+    /** The more important node a downward edge comes from */
+    public int downTarget(int i) { return downTargets[i]; }
+    /** The drive time of a downward edge */
+    public float downWeight(int i) { return downWeights[i]; }
+    /** The hierarchy edge of a downward edge */
+    public int downEdge(int i) { return downEdges[i]; }
+
+    /**
+     * Unpacks a hierarchy edge into the graph arcs it stands for
+     * @param edge The hierarchy edge
+     * @param stack A scratch list (emptied)
+     * @param arcs The list to append the arcs to, in order
+     */
+    public void unpack(int edge, IntList stack, IntList arcs) {
+        stack.clear();
+        stack.add(edge);
+        while (!stack.isEmpty()) {
+            int e = stack.pop();
+            if (child1[e] == -1) {
+                arcs.add(child2[e]);
+            } else {
+                stack.add(child2[e]); // The first half is unpacked first
+                stack.add(child1[e]);
+            }
+        }
+    }
+
+    /**
+     * Saves the hierarchy. The nodes are saved by id, and the graph arcs by
+     * index along with the checksum of the graph, as the same end points and
+     * drive time may belong to several roads.
+     * @param graph The graph the hierarchy was built from
+     * @param path Where to save it
+     * @throws java.io.IOException
+     */
+    public void save(Graph graph, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeInt(rank.length);
+            out.writeInt(edgeCount);
+            out.writeInt(graph.arcs());
+            out.writeLong(graph.checksum());
+            for (int v = 0; v < rank.length; v++) {
+                out.writeLong(graph.hasNode(v)? graph.id(v): noNode);
+            }
+            for (int v = 0; v < rank.length; v++) {
+                out.writeInt(rank[v]);
+            }
+            for (int e = 0; e < edgeCount; e++) { out.writeInt(from[e]); }
+            for (int e = 0; e < edgeCount; e++) { out.writeInt(to[e]); }
+            for (int e = 0; e < edgeCount; e++) { out.writeFloat(weights[e]); }
+            for (int e = 0; e < edgeCount; e++) { out.writeInt(child1[e]); }
+            for (int e = 0; e < edgeCount; e++) { out.writeInt(child2[e]); }
+        }
+    }
+
+    /**
+     * Loads a saved hierarchy for the given graph
+     * @param path The saved hierarchy
+     * @param graph The graph it was built from
+     * @return The hierarchy, or null if it doesn't match the graph
+     * @throws java.io.IOException
+     */
+    public static ContractionHierarchy load(Path path, Graph graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != magic || buffer.getInt() != version) {
+                return null;
+            }
+            int nodes = buffer.getInt();
+            int edges = buffer.getInt();
+            int arcCount = buffer.getInt();
+            if (arcCount != graph.arcs() || buffer.getLong() != graph.checksum()) {
+                return null; // Built from other road data
+            }
+            long[] ids = new long[nodes];
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + nodes * 8);
+            IntBuffer ints = buffer.asIntBuffer();
+            int[] savedRank = new int[nodes];
+            ints.get(savedRank);
+
+            // Map the saved node indices to the ones of this graph
+            int[] index = new int[nodes];
+            ContractionHierarchy ch = new ContractionHierarchy(graph.size(), edges);
+            Arrays.fill(ch.rank, -1);
+            for (int v = 0; v < nodes; v++) {
+                if (ids[v] == noNode) { continue; }
+                try {
+                    index[v] = graph.index(ids[v]);
+                } catch (Graph.NoPathException ex) {
+                    return null;
+                }
+                ch.rank[index[v]] = savedRank[v];
+            }
+            int[] f = new int[edges];
+            int[] t = new int[edges];
+            float[] w = new float[edges];
+            int[] c1 = new int[edges];
+            int[] c2 = new int[edges];
+            ints.get(f);
+            ints.get(t);
+            buffer.position(buffer.position() + nodes * 4 + edges * 8);
+            FloatBuffer floats = buffer.asFloatBuffer();
+            floats.get(w);
+            buffer.position(buffer.position() + edges * 4);
+            ints = buffer.asIntBuffer();
+            ints.get(c1);
+            ints.get(c2);
+
+            int arcs = 0;
+            for (int e = 0; e < edges; e++) {
+                int u = index[f[e]];
+                int x = index[t[e]];
+                if (c1[e] == -1) { // The checksum matched, so the arc is the same
+                    int arc = c2[e];
+                    if (arc < graph.adjStart(u) || arc >= graph.adjEnd(u) 
+                            || graph.other(arc) != x) {
+                        return null;
+                    }
+                    arcs++;
+                }
+                ch.addEdge(u, x, w[e], c1[e], c2[e]);
+            }
+            if (arcs != arcCount) {
+                return null;
+            }
+            ch.buildSearchGraphs();
+            return ch;
+        }
+    }
+
+    /**
+     * Loads the saved hierarchy of the given data file, if there is one
+     * @param file The data file the graph was loaded from
+     * @param graph The graph
+     * @return The hierarchy, or null if none has been built for the file
+     */
+    public static ContractionHierarchy load(Datafile file, Graph graph) {
+        String filename = file.baseFilename() + extension;
+        if (!Utils.hasFile(filename)) {
+            return null;
+        }
+        try {
+            ContractionHierarchy ch = load(Utils.getFilePath(filename), graph);
+            if (ch == null) {
+                System.out.println("The hierarchy '"+filename+"' is outdated, please rebuild it");
+            }
+            return ch;
+        } catch (IOException | Utils.LoadFileException ex) {
+            System.out.println("Could not load the hierarchy '"+filename+"'. Error: "+ex);
+            return null;
+        }
+    }
+
+    /**
+     * Builds and saves the hierarchy of a data set ('krak' or 'osm')
+     * @param args
+     */
+    public static void main(String[] args) throws IOException {
+        Datafile file = (args.length > 0 && args[0].equals("osm"))? NewLoader.osmdata: NewLoader.krakdata;
+        Model model = NewLoader.loadData(file);
+        Graph graph = new Graph(model);
+        ProgressBar progbar = new ProgressBar();
+        progbar.setTarget("Contracting the graph", graph.size());
+        long t1 = System.nanoTime();
+        ContractionHierarchy ch = build(graph, progbar);
+        progbar.close();
+        Path target = Utils.getSourceDir().resolve(file.baseFilename() + extension);
+        ch.save(graph, target);
+        System.out.println("Built a hierarchy with "+ch.edges()+" edges for "
+                +graph.arcs()+" arcs in "+(System.nanoTime()-t1)/1e9+" sec");
+        System.exit(0);
+    }
+}
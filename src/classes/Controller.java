@@ -2,6 +2,8 @@
 package classes;
 
 import enums.RoadType;
+import enums.RoutingMode;
+import interfaces.IRoad;
 import interfaces.StreamedContainer;
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -27,10 +29,14 @@ public class Controller extends JFrame {
     public final double wperh = 450403.8604700001 / 352136.5527900001; // map ratio
     public ArrayList<RoadType> prioritized;
     public final Graph graph;
+    public final RoutingService routing;
     public final RoutePanel routePanel;
     
     // Dynamic fields
     public final Viewport viewport;
+    private final TileLayer tiles; // The tiles of the map
+    private final RenderScheduler scheduler; // Draws the whole frames of the map
+    private boolean tiled; // Whether the map is painted from the tiles
     public static final RenderInstructions defaultInstructions = new RenderInstructions();
     /**
      * Initializes the static variables
@@ -52,20 +58,43 @@ public class Controller extends JFrame {
      * @param model The model to manage
      */
     public Controller(final OptimizedView view, Model model) {
+        this(view, model, false);
+    }
+
+    /**
+     * Constructor for the Controller class
+     *
+     * @param view The view to manage
+     * @param model The model to manage
+     * @param tiled Whether to draw the map as cached tiles (see TileLayer)
+     * rather than as whole frames (see RenderScheduler)
+     */
+    public Controller(final OptimizedView view, Model model, boolean tiled) {
         super();
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setTitle("First-year Project - Visualization of Denmark");
         
         ProgressBar progbar = new ProgressBar();
         progbar.setTarget("Creating graph", model.roadCount);
-        graph = new Graph(model, NewLoader.loaded, progbar);
+        graph = new Graph(model, progbar);
         //graph = null;
         progbar.close();
+        routing = new RoutingService(graph);
+        if (model.file != null) {
+            routing.setHierarchy(ContractionHierarchy.load(model.file, graph));
+        }
+        if (routing.defaultMode() != RoutingMode.Hierarchy) {
+            routing.computeLandmarks(model.bounds, Landmarks.defaultCount);
+        }
         //System.out.println("Graph stats: V: "+graph.V()+", E: "+graph.E());
         this.model = model;
         viewport = new Viewport(model.bounds, 1, view);
 
         this.view = view;
+        tiles = new TileLayer(model, view.ins, view.gfx_config);
+        scheduler = new RenderScheduler(model, view);
+        this.tiled = tiled;
+        view.setTiles(tiled? tiles: null);
 
         // Set the insets / padding of the window
         final JPanel contentPanel = new JPanel(new BorderLayout());
@@ -87,7 +116,7 @@ public class Controller extends JFrame {
         contentPanel.add(viewPanel);
         contentPanel.add(new ZoomButtonsGUI(this), BorderLayout.EAST);
 
-        routePanel = new RoutePanel(model, view, graph, this);
+        routePanel = new RoutePanel(model, view, routing, this);
         contentPanel.add(routePanel, BorderLayout.WEST); 
         
         contentPanel.add(new FindRoadPanel(this, view), BorderLayout.SOUTH);
@@ -118,8 +147,12 @@ public class Controller extends JFrame {
      * @param p The projection to draw
      */
     public void draw(Viewport.Projection p) {
-        view.renewImage(p);
-        model.getRoads(view, p);
+        if (tiled) {
+            view.setProjection(p);
+            view.repaint();
+            return;
+        }
+        scheduler.request(p); // The old image is shown until the frame is done
     }
 
     /**
@@ -128,8 +161,11 @@ public class Controller extends JFrame {
      * @param deltaWidth
      */
     public void extend(int deltaWidth) {
-        view.extend();
-        model.getRoads(view, viewport.widen(deltaWidth));
+        view.setProjection(viewport.getProjection());
+        view.repaint();
+        if (!tiled) { // The old frame is shown until then
+            scheduler.request(viewport.getProjection());
+        }
     }
 
     /**
@@ -139,10 +175,14 @@ public class Controller extends JFrame {
      * @param dy The y-axis movement
      */
     public void moveMap(int dx, int dy) {
-        view.offsetImage(dx, dy);
-        for (Viewport.Projection p: viewport.movePixels(dx, dy)) {
-            view.setProjection(p);
-            model.getRoads(view, p);
+        viewport.movePixels(dx, dy);
+        Viewport.Projection p = viewport.getProjection();
+        view.setProjection(p);
+        view.repaint(); // The old frame is moved along until the new one is done
+        if (tiled) { // Only tiles coming into view are ever drawn
+            tiles.prefetch(p, view.getWidth(), view.getHeight(), dx, dy);
+        } else {
+            scheduler.request(p);
         }
     }
 
@@ -153,19 +193,74 @@ public class Controller extends JFrame {
         long t1 = System.nanoTime();
        // System.out.println("Executing a full redraw of the View");
         //System.out.println("The projection is "+viewport.getProjection());
-        view.renewImage(viewport.getProjection());
-        model.getRoads(view, viewport.getProjection());
+        if (tiled) { // The road types or their colors may have changed
+            tiles.clear();
+            view.setProjection(viewport.getProjection());
+            view.repaint();
+            return;
+        }
+        scheduler.request(viewport.getProjection());
         //System.out.println("- Finished! ("+(System.nanoTime()-t1)/1000000000.0+" sec) -");
     }
     
+    /**
+     * Redraws the map after the given types of road were switched on or off.
+     * When the map is drawn as whole frames, its layers are only composited
+     * again. When it is tiled, the tiles in view are only drawn again if one
+     * of the types can be seen at the current zoom.
+     * @param types The types that were switched
+     */
+    public void redrawTypes(RoadType... types) {
+        Viewport.Projection p = viewport.getProjection();
+        if (!tiled) {
+            scheduler.recomposite(p);
+            return;
+        }
+        for (RoadType type : types) {
+            if (model.isVisible(type, p)) {
+                redraw();
+                return;
+            }
+        }
+        tiles.retainZoom(p.ppu); // The other zooms may show the types
+        view.repaint();
+    }
+
+    /**
+     * Sets whether the map is painted from cached tiles (see TileLayer),
+     * which makes panning cheap, or drawn as whole frames in layers (see
+     * RenderScheduler), which are drawn coarse first and let the drawn types
+     * change without looking up the roads again
+     * @param tiled Whether to paint the map from tiles
+     */
+    public void setTiled(boolean tiled) {
+        if (tiled == this.tiled) {
+            return;
+        }
+        this.tiled = tiled;
+        if (!tiled) {
+            tiles.clear(); // Only kept while they are painted
+        }
+        view.setTiles(tiled? tiles: null);
+        redraw();
+    }
+
+    /**
+     * Returns whether the map is painted from cached tiles
+     * @return whether the map is painted from cached tiles
+     */
+    public boolean isTiled() {
+        return tiled;
+    }
+    
     /**
      * Streams the roads from the given area to the target
      * @param area The area to find roads in
      * @param target Where to send them
      */
-    public void streamRoads(Rect area, StreamedContainer<Road> target) {
-        // The projection target is irrelevant, since we're not drawing
-        model.getRoads(target, new Viewport.Projection(area, area)); 
+    public void streamRoads(Rect area, StreamedContainer<IRoad> target) {
+        // Not filtered by zoom, since the nearest road may be a small one
+        model.getAllRoads(target, area);
     }
 
     /**
@@ -1,6 +1,6 @@
 package classes;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class parses a line of comma-separated lines of data, with
@@ -22,15 +22,14 @@ import java.util.HashMap;
  */
 public class DataLine {
 
-	private static HashMap<String,String> interner =
-            new HashMap<>();
+	private static ConcurrentHashMap<String,String> interner =
+            new ConcurrentHashMap<>();
 
 	private String intern(String s){
-            String interned = interner.get(s);
+            String interned = interner.putIfAbsent(s, s);
             if (interned != null)
                     return interned;
             else {
-                    interner.put(s, s);
                     return s;
             }
 	}
@@ -40,7 +39,7 @@ public class DataLine {
 	 * strings in the input data set are used.
 	 */
 	public static void resetInterner() {
-		interner = new HashMap<>();
+		interner = new ConcurrentHashMap<>();
 	}
 
 	private final String line;
@@ -12,6 +12,13 @@ public class Datafile {
     public final long lines;
     public final Rect bounds;
     public final String charset;
+    public final boolean binary;
+    
+    /**
+     * The extension used for binary snapshots of a text data file
+     */
+    public static final String snapshotExtension = ".bin";
+    
     /**
      * Constructor for the Datafile class
      * @param filename The name of the file to load
@@ -19,16 +26,56 @@ public class Datafile {
      * @param progressDescription What the progress bar should say while loading
      * @param bounds The 'show all' bounds of the data set
      * @param charset Which character set to load it from
+     * @param binary Whether the file is a binary snapshot rather than text
      */
-    public Datafile(String filename, long lines, String progressDescription, Rect bounds, String charset) {
+    public Datafile(String filename, long lines, String progressDescription, 
+            Rect bounds, String charset, boolean binary) {
         this.filename = filename;
         this.lines = lines;
         this.progressDescription = progressDescription;
         this.bounds = bounds;
         this.charset = charset;
+        this.binary = binary;
     } 
     
+    /**
+     * Constructor for the Datafile class, describing a text file
+     * @param filename The name of the file to load
+     * @param lines How many elements will be loaded from the file
+     * @param progressDescription What the progress bar should say while loading
+     * @param bounds The 'show all' bounds of the data set
+     * @param charset Which character set to load it from
+     */
+    public Datafile(String filename, long lines, String progressDescription, Rect bounds, String charset) {
+        this(filename, lines, progressDescription, bounds, charset, false);
+    }
+    
+    /**
+     * Returns the descriptor of the binary snapshot of this file, which is
+     * placed next to the text file (eg. 'resources/roads.txt.bin')
+     * @return the descriptor of the binary snapshot of this file
+     */
+    public Datafile snapshot() {
+        if (binary) {
+            return this;
+        }
+        return new Datafile(filename + snapshotExtension, lines, 
+                progressDescription, bounds, charset, true);
+    }
+    
+    /**
+     * Returns the name of the text file this descriptor was made from, which
+     * files derived from the data (eg. a routing hierarchy) are named after
+     * @return the name of the text data file
+     */
+    public String baseFilename() {
+        if (binary && filename.endsWith(snapshotExtension)) {
+            return filename.substring(0, filename.length() - snapshotExtension.length());
+        }
+        return filename;
+    }
+
     public String toString() {
-        return filename+"("+lines+"): '"+progressDescription+"'["+bounds+"]";
+        return filename+"("+lines+(binary? ", binary": "")+"): '"+progressDescription+"'["+bounds+"]";
     }
 }
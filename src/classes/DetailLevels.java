@@ -0,0 +1,104 @@
+package classes;
+
+/**
+ * The DetailLevels class simplifies the geometry of roads for drawing them
+ * zoomed out. Rather than keeping a simplified copy of each road per zoom
+ * level, every vertex gets the highest level of detail it is still needed at,
+ * found with Douglas-Peucker: a vertex is kept at a tolerance if it is further
+ * than the tolerance from the line it would be cut away from, and so are the
+ * vertices it was split on before it. A road drawn at level k uses only the
+ * vertices with a level of at least k, which never strays more than
+ * tolerances[k] meters from the real road.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class DetailLevels {
+    // The largest error of each level, in meters (level 0 is the full road)
+    public static final float[] tolerances = new float[] {0, 1, 4, 16, 64, 256};
+    // The level of the end points of a road, which are always drawn
+    public static final byte top = (byte)(tolerances.length - 1);
+
+    /**
+     * Computes the detail level of every vertex of a road
+     * @param xs The x-coordinates of the vertices
+     * @param ys The y-coordinates of the vertices
+     * @param n The number of vertices
+     * @param levels Where to put the levels of the vertices
+     */
+    public static void compute(float[] xs, float[] ys, int n, byte[] levels) {
+        if (n == 0) {
+            return;
+        }
+        levels[0] = top;
+        levels[n - 1] = top;
+        if (n < 3) {
+            return;
+        }
+        // The stretches left to split, as (first, last, significance) with
+        // the significance being that of the vertex they were split on
+        int[] stack = new int[64];
+        float[] limits = new float[32];
+        stack[0] = 0;
+        stack[1] = n - 1;
+        limits[0] = Float.POSITIVE_INFINITY;
+        int size = 1;
+        while (size > 0) {
+            size--;
+            int first = stack[size * 2];
+            int last = stack[size * 2 + 1];
+            float limit = limits[size];
+            int farthest = -1;
+            float max = -1;
+            for (int i = first + 1; i < last; i++) {
+                float d = Finder.pointToLineDistance(xs[first], ys[first],
+                        xs[last], ys[last], xs[i], ys[i]);
+                if (d > max) {
+                    max = d;
+                    farthest = i;
+                }
+            }
+            if (farthest == -1) {
+                continue;
+            }
+            // A vertex is never kept when the one it depends on is cut away
+            float significance = Math.min(max, limit);
+            levels[farthest] = level(significance);
+            if (size + 2 > limits.length) {
+                stack = java.util.Arrays.copyOf(stack, stack.length * 2);
+                limits = java.util.Arrays.copyOf(limits, limits.length * 2);
+            }
+            stack[size * 2] = first;
+            stack[size * 2 + 1] = farthest;
+            limits[size++] = significance;
+            stack[size * 2] = farthest;
+            stack[size * 2 + 1] = last;
+            limits[size++] = significance;
+        }
+    }
+
+    /**
+     * Returns the highest level whose tolerance is below the given distance
+     */
+    private static byte level(float significance) {
+        byte level = 0;
+        while (level < top && tolerances[level + 1] < significance) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns the level to draw roads at for the given zoom, which is the
+     * coarsest whose error is at most a pixel
+     * @param ppu The pixels per unit (meter) of the projection
+     * @return The level of detail to draw at
+     */
+    public static int levelFor(float ppu) {
+        float pixel = 1 / ppu; // The size of a pixel in meters
+        int level = 0;
+        while (level < top && tolerances[level + 1] <= pixel) {
+            level++;
+        }
+        return level;
+    }
+}
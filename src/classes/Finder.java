@@ -1,6 +1,7 @@
 package classes;
 
 import interfaces.IProgressBar;
+import interfaces.IRoad;
 import interfaces.Receiver;
 import interfaces.StreamedContainer;
 import java.awt.geom.Point2D;
@@ -25,32 +26,47 @@ public class Finder {
      * @return The distance between the source position to the middle of the line
      */
     public static float pointToLineDistance(Point2D.Float a, Point2D.Float b, Point2D.Float source) {
-        // Creates a vector from point a to point source.
-        Point2D.Float c = new Point2D.Float(source.x - a.x, source.y - a.y);
-        // Creates a vector from a to b.
-        Point2D.Float ab = new Point2D.Float(b.x - a.x, b.y - a.y);
+        return pointToLineDistance(a.x, a.y, b.x, b.y, source.x, source.y);
+    }
+    
+    /**
+     * Calculates the smallest distance from the point (px, py) to the line
+     * between (ax, ay) and (bx, by), without creating any objects
+     * @param ax The x-coordinate of the start of the line
+     * @param ay The y-coordinate of the start of the line
+     * @param bx The x-coordinate of the end of the line
+     * @param by The y-coordinate of the end of the line
+     * @param px The x-coordinate of the source position
+     * @param py The y-coordinate of the source position
+     * @return The distance between the source position and the line
+     */
+    public static float pointToLineDistance(float ax, float ay, float bx, float by, 
+            float px, float py) {
+        // The vector from a to the source, and from a to b
+        float cx = px - ax;
+        float cy = py - ay;
+        float abx = bx - ax;
+        float aby = by - ay;
         // Calculate the length of the vector ab.
-        float length = (float) Math.sqrt(ab.x*ab.x + ab.y*ab.y);
-        // Create a unit vector of ab.
-        Point2D.Float unit = new Point2D.Float(ab.x / length, ab.y / length);
+        float length = (float) Math.sqrt(abx*abx + aby*aby);
+        if (length == 0) { // The line is a single point
+            return (float) Math.sqrt(cx * cx + cy * cy);
+        }
         // calculate the length of the vector, moving from a towards b, and ending
         // where the closest distance to point source will be.
-        float dot = unit.x * c.x + unit.y * c.y;
+        float dot = (abx * cx + aby * cy) / length;
         // If source is further away from b than a is.
         if (dot < 0) {
-            return (float) Math.sqrt((source.x - a.x) * (source.x - a.x) + (source.y - a.y) * (source.y - a.y));
+            return (float) Math.sqrt(cx * cx + cy * cy);
             // if source is further away from a then b is.
         } else if (dot > length) {
-            return (float) Math.sqrt((source.x - b.x) * (source.x - b.x) + (source.y - b.y) * (source.y - b.y));
+            return (float) Math.sqrt((px - bx) * (px - bx) + (py - by) * (py - by));
         } else {
-            // create a vector with the same degree as ab, that has the length 
-            // of point a to the point that is closest to point source
-            Point2D.Float unitDot = new Point2D.Float(unit.x * dot, unit.y * dot);
-            // add the coordinates of point a to unitDot to get the coordinates
-            // of the point on line ab, which is closest to source
-            Point2D.Float point = new Point2D.Float(a.x + unitDot.x, a.y + unitDot.y);
+            // The point on line ab which is closest to source
+            float x = ax + abx / length * dot;
+            float y = ay + aby / length * dot;
             // Use Pythagoras to find distance from source to point
-            return (float) Math.sqrt((source.x - point.x) * (source.x - point.x) + (source.y - point.y) * (source.y - point.y));
+            return (float) Math.sqrt((px - x) * (px - x) + (py - y) * (py - y));
         }
     }
     
@@ -110,21 +126,26 @@ public class Finder {
         findNearestRoad(rect, recipient, controller);
     }
     
-    private static class RoadChecker implements StreamedContainer<Road> {
+    private static class RoadChecker implements StreamedContainer<IRoad> {
         /**
          * A helper class to make the road finding static while still using
          * the streaming method.
          */
         private Rect rect;
-        private Road nearest;
+        private IRoad nearest;
         private float minDist;
+        private final SegmentCursor cursor = new SegmentCursor();
         private Receiver<Road> recipient;
         private Controller con;
+        private float x;
+        private float y;
  
         public RoadChecker(Rect rect, Receiver<Road> recipient, Controller con) {
             this.rect = rect;
             this.recipient = recipient;
             this.con = con;
+            x = rect.center().x;
+            y = rect.center().y;
         }
         
         @Override
@@ -140,13 +161,10 @@ public class Finder {
         }
 
         @Override
-        public void add(Road obj) {
-            for (Road.Edge edge : obj) {
-                float distance = pointToLineDistance(
-                        new Point2D.Float(edge.p1.x, edge.p1.y),
-                        new Point2D.Float(edge.p2.x, edge.p2.y),
-                        rect.center()
-                );
+        public void add(IRoad obj) {
+            SegmentCursor seg = cursor.reset(obj);
+            while (seg.next()) {
+                float distance = pointToLineDistance(seg.x1, seg.y1, seg.x2, seg.y2, x, y);
                 if (distance < minDist) {
                     nearest = obj;
                     minDist = distance;
@@ -166,19 +184,21 @@ public class Finder {
                 Finder.findNearestRoad(rect, recipient, con);
             } else {
                 //System.out.println("Found a road, ending...");
-                recipient.receive(nearest);
+                recipient.receive(nearest.toRoad());
             }
         }
     }
-    private static class NodeChecker implements StreamedContainer<Road> {
+    private static class NodeChecker implements StreamedContainer<IRoad> {
         /**
          * A helper class to make the road finding static while still using
          * the streaming method.
          * (Sorry, I couldn't find a way to do this nicely without duplication)
          */
         private Rect rect;
-        private Road.Node nearest;
+        private IRoad nearest;
+        private int nearestIndex; // The vertex of the nearest road
         private float minDist;
+        private final SegmentCursor cursor = new SegmentCursor();
         private Receiver<Road.Node> recipient;
         private Controller con;
         private float x;
@@ -205,11 +225,15 @@ public class Finder {
         }
 
         @Override
-        public void add(Road obj) {
-            for (Road.Node node : obj.nodes) {
-                float distance = distance(x, y, node);
+        public void add(IRoad obj) {
+            SegmentCursor road = cursor.reset(obj);
+            for (int i = 0; i < road.vertexCount(); i++) {
+                float dx = road.x(i) - x;
+                float dy = road.y(i) - y;
+                float distance = (float)Math.sqrt(dx * dx + dy * dy);
                 if (distance < minDist) {
-                    nearest = node;
+                    nearest = obj;
+                    nearestIndex = i;
                     minDist = distance;
                 }
             }
@@ -227,7 +251,7 @@ public class Finder {
                 Finder.findNearestNode(rect, recipient, con);
             } else {
                 //System.out.println("Found a road, ending...");
-                recipient.receive(nearest);
+                recipient.receive(nearest.getNode(nearestIndex));
             }
         }
     }
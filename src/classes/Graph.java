@@ -6,50 +6,200 @@ package classes;
 
 
 import interfaces.IProgressBar;
+import interfaces.IRoad;
 import interfaces.StreamedContainer;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+
+/**
+ * The Graph class is the road network as a frozen graph in compressed sparse
+ * row form: the arcs leaving node v are the indices adjStart(v) until
+ * adjEnd(v) of a few flat arrays, holding the node at the other end, the
+ * drive time and the road segment each arc was made from. A bidirectional
+ * road segment results in an arc in each direction. The arcs are also
+ * indexed by the node they enter (revStart(v) until revEnd(v)), for searches
+ * that go backwards from a target.
+ */
+public class Graph implements StreamedContainer<IRoad>{
 
-public class Graph implements StreamedContainer<Road>{
-    
     public static class NoPathException extends Exception {
         public NoPathException() {
             super("A path could not be found");
         }
     }
-    
+
     private int V = 0; //Number of vertices/intersections
     private int E = 0; //Number of edges/road parts
-    private HashMap<Long, ArrayList<Road.Edge>> adj = new HashMap<>();
-    private HashMap<Long, Road.Node> nodes;
+    private static final long noNode = Long.MIN_VALUE; // Id of unused indices
+    private final long[] nodeIds; // The node ids, by node index
+    private final long[] sortedIds; // The node ids in order, for lookups
+    private final int[] sortedIndices; // The node index of each sorted id
+    private final float[] xs; // The coordinates of the nodes, by node index
+    private final float[] ys;
+
+    // The arcs, sorted by the node they leave
+    private final int[] offsets; // The first arc of each node (and the end)
+    private int[] targets; // The node each arc leads to
+    private float[] weights; // The drive time of each arc
+    private int[] arcRoads; // The road each arc is a part of
+    private int[] arcSegments; // The segment of the road that each arc is
+
+    // The arcs again, sorted by the node they enter
+    private final int[] revOffsets; // The first entering arc of each node
+    private int[] revTails; // The node each entering arc comes from
+    private int[] revArcs; // The arc each entering arc is
+
+    private FastArList<IRoad> roadList = new FastArList<>(); // Used while building
+    private IRoad[] roads;
     private IProgressBar progbar                    = null;
-    
-    public Graph(Model model, HashMap<Long, Road.Node> nodes) {
-        this.nodes = nodes;
-        for (Long id : nodes.keySet()) { // Create the 'adjacent' arrays
-            adj.put(id, new ArrayList<Road.Edge>());
-        }
-        model.getAllRoads(this);
+
+    public Graph(Model model, ConcurrentLongMap<Road.Node> nodes) {
+        this(model, nodes, null);
     }
-    
-    public Graph(Model model, HashMap<Long, Road.Node> nodes, IProgressBar progbar) {
+
+    /**
+     * Constructor for the Graph class, with the nodes loaded by NewLoader
+     * @param model The model with the roads
+     */
+    public Graph(Model model) {
+        this(model, NewLoader.loaded, null);
+    }
+
+    /**
+     * Constructor for the Graph class, with the nodes loaded by NewLoader
+     * @param model The model with the roads
+     * @param progbar A progress bar to update per road, or null
+     */
+    public Graph(Model model, IProgressBar progbar) {
+        this(model, NewLoader.loaded, progbar);
+    }
+
+    /**
+     * Constructor for the Graph class. The graph keeps its own copy of the
+     * nodes, so the map of loaded nodes may be cleared afterwards. The nodes
+     * of a compact model are instead those of its road store, whose node ids
+     * the graph shares.
+     * @param model The model with the roads
+     * @param nodes The loaded nodes (not used for a compact model)
+     * @param progbar A progress bar to update per road, or null
+     */
+    public Graph(Model model, ConcurrentLongMap<Road.Node> nodes, IProgressBar progbar) {
+        this(model, nodeIds(model, nodes), coordinates(model, nodes), progbar);
+    }
+
+    private Graph(Model model, long[] nodeIds, float[][] coordinates, IProgressBar progbar) {
         this.progbar = progbar;
-        this.nodes = nodes;
-        for (Long id : nodes.keySet()) { // Create the 'adjacent' arrays
-            adj.put(id, new ArrayList<Road.Edge>());
+        this.nodeIds = nodeIds;
+        xs = coordinates[0];
+        ys = coordinates[1];
+        int size = nodeIds.length;
+        for (int v = 0; v < size; v++) {
+            if (nodeIds[v] != noNode) {
+                V += 1;
+            }
+        }
+        // Sort the ids, so the index of an id can be found by binary search
+        sortedIds = new long[V];
+        int i = 0;
+        for (int v = 0; v < size; v++) {
+            if (nodeIds[v] != noNode) {
+                sortedIds[i++] = nodeIds[v];
+            }
+        }
+        Arrays.sort(sortedIds);
+        sortedIndices = new int[V];
+        for (int v = 0; v < size; v++) {
+            if (nodeIds[v] != noNode) {
+                sortedIndices[Arrays.binarySearch(sortedIds, nodeIds[v])] = v;
+            }
         }
+        offsets = new int[size + 1];
+        revOffsets = new int[size + 1];
         model.getAllRoads(this);
     }
-    
+
+    /**
+     * Returns the node ids of the graph by node index, with noNode for the
+     * indices no node has
+     */
+    private static long[] nodeIds(Model model, ConcurrentLongMap<Road.Node> nodes) {
+        if (model.isCompact()) {
+            return model.getStore().nodeIds();
+        }
+        long[] ids = new long[NewLoader.nodeCount()];
+        Arrays.fill(ids, noNode);
+        for (Road.Node node : nodes) {
+            ids[node.index] = node.id;
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the x- and y-coordinates of the nodes of the graph by node index
+     */
+    private static float[][] coordinates(Model model, ConcurrentLongMap<Road.Node> nodes) {
+        if (model.isCompact()) {
+            RoadStore store = model.getStore();
+            float[][] coordinates = new float[2][store.nodeCount()];
+            store.nodeCoordinates(coordinates[0], coordinates[1]);
+            return coordinates;
+        }
+        float[][] coordinates = new float[2][NewLoader.nodeCount()];
+        for (Road.Node node : nodes) {
+            coordinates[0][node.index] = node.x;
+            coordinates[1][node.index] = node.y;
+        }
+        return coordinates;
+    }
+
     /**
      * Returns the number of vertices in the edge-weighted graph.
      *
      * @return the number of vertices in the edge-weighted graph
      */
     public int V() {
-        return adj.size();
+        return V;
+    }
+
+    /**
+     * Returns the size of arrays indexed by the nodes of this graph
+     * @return the size of arrays indexed by the nodes of this graph
+     */
+    public int size() {
+        return nodeIds.length;
+    }
+
+    /**
+     * Returns the index of the node with the given id
+     * @param id The id of the node
+     * @return The index of the node
+     * @throws classes.Graph.NoPathException if the node isn't in the graph
+     */
+    public int index(long id) throws NoPathException {
+        int i = Arrays.binarySearch(sortedIds, id);
+        if (i < 0) {
+            throw new NoPathException();
+        }
+        return sortedIndices[i];
+    }
+
+    /**
+     * Returns whether there is a node with the given index
+     * @param v The index
+     * @return Whether the index is used by a node
+     */
+    public boolean hasNode(int v) {
+        return nodeIds[v] != noNode;
+    }
+
+    /**
+     * Returns the id of the node with the given index
+     * @param v The index of the node
+     * @return The id of the node
+     */
+    public long id(int v) {
+        return nodeIds[v];
     }
 
     /**
@@ -62,36 +212,205 @@ public class Graph implements StreamedContainer<Road>{
     }
 
     /**
-     * Returns the edges incident on vertex <tt>v</tt>.
-     *
-     * @return the edges incident on vertex <tt>v</tt> as an Iterable
-     * @param v the vertex
-     * @throws java.lang.IndexOutOfBoundsException unless 0 <= v < V
-     */
-    public Iterable<Road.Edge> adj(long v) {
-        //  System.out.println("vertex " + v + " has " + adj[v].size() + " adjacent edges");
-        return adj.get(v);
-    }
-
-    public long other(Road.Edge part, long firstIndex) throws NoPathException {
-        // System.out.println("Checking other index with indexes " + part.sourceID + " and " + part.targetID);
-        // System.out.println("Road:" + part);
-        //System.out.println("RoadPart: " + part.name);
-        //System.out.println("SourceID: " + part.sourceID + "\n"
-        //      + "FirstIDIndex: " + firstIDIndex);
-        if (part != null) {
-            if (part.p1.id == firstIndex) {
-                return part.p2.id;
-            } else {
-                return part.p1.id;
+     * Returns the number of directed arcs in the graph
+     * @return the number of directed arcs in the graph
+     */
+    public int arcs() {
+        return offsets[nodeIds.length];
+    }
+
+    /**
+     * Returns whether every arc has an arc going the other way with the same
+     * drive time, which is the case when no road is one-way
+     * @return whether the graph has no one-way roads
+     */
+    public boolean isSymmetric() {
+        return arcs() == 2 * E;
+    }
+
+    /**
+     * Returns a checksum of the arcs of the graph: their end nodes (by id),
+     * drive times, and the road segments they were made from. Arc indices
+     * saved for one graph are only valid for a graph with the same checksum.
+     * @return The checksum of the arcs
+     */
+    public long checksum() {
+        long hash = 17;
+        for (int v = 0; v < nodeIds.length; v++) {
+            for (int arc = offsets[v]; arc < offsets[v + 1]; arc++) {
+                hash = hash * 31 + nodeIds[v];
+                hash = hash * 31 + nodeIds[targets[arc]];
+                hash = hash * 31 + Float.floatToIntBits(weights[arc]);
+                hash = hash * 31 + arcRoads[arc];
+                hash = hash * 31 + arcSegments[arc];
             }
-        } else {
-            throw new NoPathException();
         }
+        return hash;
     }
 
-    public Road.Node getIntersection(long index) {
-        return nodes.get(index);
+    /**
+     * Returns the first arc leaving vertex <tt>v</tt>.
+     * The arcs of v are adjStart(v) until (excluding) adjEnd(v).
+     * @param v the index of the vertex
+     * @return the first arc leaving the vertex
+     */
+    public int adjStart(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Returns the arc after the last arc leaving vertex <tt>v</tt>.
+     * @param v the index of the vertex
+     * @return the end of the arcs leaving the vertex
+     */
+    public int adjEnd(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * Returns the vertex the given arc leads to
+     * @param arc The arc
+     * @return The index of the vertex at the other end of the arc
+     */
+    public int other(int arc) {
+        return targets[arc];
+    }
+
+    /**
+     * Returns the drive time of the given arc
+     * @param arc The arc
+     * @return The drive time of the arc in minutes
+     */
+    public float weight(int arc) {
+        return weights[arc];
+    }
+
+    /**
+     * Returns the road edge the given arc was made from
+     * @param arc The arc
+     * @return The road edge of the arc
+     */
+    public Road.Edge edge(int arc) {
+        return roads[arcRoads[arc]].toRoad().getEdge(arcSegments[arc]);
+    }
+
+    /**
+     * Returns the road edges of the given arcs
+     * @param arcs The arcs
+     * @return The road edges of the arcs
+     */
+    public Road.Edge[] edges(int[] arcs) {
+        Road.Edge[] edges = new Road.Edge[arcs.length];
+        Road road = null;
+        int last = -1;
+        for (int i = 0; i < arcs.length; i++) {
+            int r = arcRoads[arcs[i]];
+            if (r != last) { // Successive arcs are usually on the same road
+                road = roads[r].toRoad();
+                last = r;
+            }
+            edges[i] = road.getEdge(arcSegments[arcs[i]]);
+        }
+        return edges;
+    }
+
+    /**
+     * Returns the road segments of the given arcs, each only once (the two
+     * arcs of a two-way segment are the same segment). The segments are
+     * grouped by road, so every road is only looked up once.
+     * @param arcs The arcs
+     * @return The road edges of the distinct segments of the arcs
+     */
+    public Road.Edge[] segments(IntList arcs) {
+        long[] keys = new long[arcs.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int arc = arcs.get(i);
+            keys[i] = ((long)arcRoads[arc] << 32) | arcSegments[arc];
+        }
+        Arrays.sort(keys);
+        FastArList<Road.Edge> edges = new FastArList<>();
+        Road road = null;
+        int last = -1;
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i] == keys[i - 1]) {
+                continue; // The other direction of a two-way segment
+            }
+            int r = (int)(keys[i] >>> 32);
+            if (r != last) {
+                road = roads[r].toRoad();
+                last = r;
+            }
+            edges.add(road.getEdge((int)keys[i]));
+        }
+        return edges.toArray(new Road.Edge[edges.size()]);
+    }
+
+    /**
+     * Returns the first arc entering vertex <tt>v</tt>, for backward searches.
+     * The arcs entering v are revStart(v) until (excluding) revEnd(v); see
+     * revTail and revArc.
+     * @param v the index of the vertex
+     * @return the first arc entering the vertex
+     */
+    public int revStart(int v) {
+        return revOffsets[v];
+    }
+
+    /**
+     * Returns the end of the arcs entering vertex <tt>v</tt>.
+     * @param v the index of the vertex
+     * @return the end of the arcs entering the vertex
+     */
+    public int revEnd(int v) {
+        return revOffsets[v + 1];
+    }
+
+    /**
+     * Returns the vertex the given entering arc comes from
+     * @param i The entering arc (between revStart and revEnd)
+     * @return The index of the vertex the arc leaves
+     */
+    public int revTail(int i) {
+        return revTails[i];
+    }
+
+    /**
+     * Returns the arc an entering arc is (for weight and edge)
+     * @param i The entering arc (between revStart and revEnd)
+     * @return The arc
+     */
+    public int revArc(int i) {
+        return revArcs[i];
+    }
+
+    /**
+     * Returns the node with the given index
+     * @param index The index of the node
+     * @return The node, or null if no node has the index
+     */
+    public Road.Node getIntersection(int index) {
+        if (nodeIds[index] == noNode) {
+            return null;
+        }
+        return new Road.Node(nodeIds[index], index, xs[index], ys[index]);
+    }
+
+    /**
+     * Returns the x-coordinate of the given vertex
+     * @param v The index of the vertex
+     * @return the x-coordinate of the vertex
+     */
+    public float x(int v) {
+        return xs[v];
+    }
+
+    /**
+     * Returns the y-coordinate of the given vertex
+     * @param v The index of the vertex
+     * @return the y-coordinate of the vertex
+     */
+    public float y(int v) {
+        return ys[v];
     }
 
     @Override
@@ -106,20 +425,19 @@ public class Graph implements StreamedContainer<Road>{
     }
 
     @Override
-    public void add(Road obj) {
-        //roads.add(obj);
-        int i = nodes.size();
-        Road.Edge last = null;
-        for (Road.Edge edge: obj) {
-            last = edge;
-            Road.Node node = edge.p1;
-            Road.Node target = edge.p2;
-            //System.out.println("i: "+i+", gotten index: "+IDToIndex.get(node.id));
-            adj.get(node.id).add(edge);
-            if (!obj.oneway) { // Krak is mostly bidirectional
-                adj.get(target.id).add(edge);
+    public void add(IRoad obj) {
+        roadList.add(obj);
+        // Count the arcs leaving each node (shifted by one for the prefix sum)
+        int segments = obj.segmentCount();
+        for (int i = 0; i < segments; i++) {
+            int from = obj.getNodeIndex(i);
+            int to = obj.getNodeIndex(i + 1);
+            offsets[from + 1] += 1;
+            revOffsets[to + 1] += 1;
+            if (!obj.isOneway()) { // Krak is mostly bidirectional
+                offsets[to + 1] += 1;
+                revOffsets[from + 1] += 1;
             }
-            
             E += 1;
         }
         if (progbar != null) {
@@ -130,6 +448,53 @@ public class Graph implements StreamedContainer<Road>{
     @Override
     public void endStream() {
         //System.out.println("Graph populated!");
+        roads = roadList.toArray(new IRoad[roadList.size()]);
+        roadList = null;
+        int size = nodeIds.length;
+        for (int v = 0; v < size; v++) {
+            offsets[v + 1] += offsets[v];
+            revOffsets[v + 1] += revOffsets[v];
+        }
+        int arcCount = offsets[size];
+        targets = new int[arcCount];
+        weights = new float[arcCount];
+        arcRoads = new int[arcCount];
+        arcSegments = new int[arcCount];
+
+        int[] next = new int[size]; // The next free arc of each node
+        System.arraycopy(offsets, 0, next, 0, size);
+        for (int r = 0; r < roads.length; r++) {
+            IRoad road = roads[r];
+            int segments = road.segmentCount();
+            for (int i = 0; i < segments; i++) {
+                int from = road.getNodeIndex(i);
+                int to = road.getNodeIndex(i + 1);
+                float time = road.getDriveTime(i);
+                int arc = next[from]++;
+                targets[arc] = to;
+                weights[arc] = time;
+                arcRoads[arc] = r;
+                arcSegments[arc] = i;
+                if (!road.isOneway()) {
+                    arc = next[to]++;
+                    targets[arc] = from;
+                    weights[arc] = time;
+                    arcRoads[arc] = r;
+                    arcSegments[arc] = i;
+                }
+            }
+        }
+
+        revTails = new int[arcCount];
+        revArcs = new int[arcCount];
+        System.arraycopy(revOffsets, 0, next, 0, size);
+        for (int v = 0; v < size; v++) {
+            for (int arc = offsets[v]; arc < offsets[v + 1]; arc++) {
+                int i = next[targets[arc]]++;
+                revTails[i] = v;
+                revArcs[i] = arc;
+            }
+        }
         MemoryMXBean mxbean = ManagementFactory.getMemoryMXBean();
         //System.out.printf("Heap memory usage: %d MB%n",
                 // mxbean.getHeapMemoryUsage().getUsed() / (1000000));
@@ -0,0 +1,152 @@
+package classes;
+
+/**
+ * The IndexedHeap class is a binary min-heap of int ids (0 until a fixed
+ * capacity) with float keys. It knows where each id is in the heap, so the
+ * key of a queued id can be decreased in logarithmic time, and it is emptied
+ * in constant time by bumping a generation stamp instead of clearing arrays.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class IndexedHeap {
+
+    private final int[] heap; // The ids in heap order (1-based)
+    private final float[] keys; // The key of each id
+    private final int[] pos; // The position of each id in the heap (0 if polled)
+    private final int[] stamps; // The generation in which each id was added
+    private int generation = 1;
+    private int N = 0;
+
+    /**
+     * Constructor for the IndexedHeap class
+     * @param capacity The number of ids (ids are 0 until capacity)
+     */
+    public IndexedHeap(int capacity) {
+        heap = new int[capacity + 1];
+        keys = new float[capacity];
+        pos = new int[capacity];
+        stamps = new int[capacity];
+    }
+
+    /**
+     * Empties the heap
+     */
+    public void clear() {
+        N = 0;
+        if (++generation == Integer.MAX_VALUE) { // Wrapped around, reset the stamps
+            java.util.Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    public int size() {
+        return N;
+    }
+
+    /**
+     * Returns whether the given id is waiting in the heap
+     * @param id The id
+     * @return Whether the id is in the heap
+     */
+    public boolean contains(int id) {
+        return stamps[id] == generation && pos[id] != 0;
+    }
+
+    /**
+     * Adds the id with the given key, or lowers its key if it is already in
+     * the heap with a higher key. Ids that were polled since the last clear
+     * are added again.
+     * @param id The id
+     * @param key The key of the id
+     */
+    public void offer(int id, float key) {
+        if (contains(id)) {
+            if (key < keys[id]) {
+                keys[id] = key;
+                swim(pos[id]);
+            }
+            return;
+        }
+        stamps[id] = generation;
+        keys[id] = key;
+        heap[++N] = id;
+        pos[id] = N;
+        swim(N);
+    }
+
+    /**
+     * Sets the key of the id whether it is higher or lower than before,
+     * adding the id if it isn't in the heap
+     * @param id The id
+     * @param key The new key of the id
+     */
+    public void update(int id, float key) {
+        if (!contains(id)) {
+            offer(id, key);
+        } else if (key < keys[id]) {
+            keys[id] = key;
+            swim(pos[id]);
+        } else {
+            keys[id] = key;
+            sink(pos[id]);
+        }
+    }
+
+    /**
+     * Returns the key of the smallest id
+     * @return the smallest key in the heap
+     */
+    public float peekKey() {
+        return keys[heap[1]];
+    }
+
+    /**
+     * Removes and returns the id with the smallest key
+     * @return the id with the smallest key
+     */
+    public int poll() {
+        int min = heap[1];
+        move(heap[N--], 1);
+        pos[min] = 0;
+        if (N > 1) {
+            sink(1);
+        }
+        return min;
+    }
+
+    private void move(int id, int i) {
+        heap[i] = id;
+        pos[id] = i;
+    }
+
+    private void swim(int i) {
+        int id = heap[i];
+        float key = keys[id];
+        while (i > 1 && keys[heap[i >> 1]] > key) {
+            move(heap[i >> 1], i);
+            i >>= 1;
+        }
+        move(id, i);
+    }
+
+    private void sink(int i) {
+        int id = heap[i];
+        float key = keys[id];
+        int child;
+        while ((child = i << 1) <= N) {
+            if (child < N && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (keys[heap[child]] >= key) {
+                break;
+            }
+            move(heap[child], i);
+            i = child;
+        }
+        move(id, i);
+    }
+}
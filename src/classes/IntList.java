@@ -0,0 +1,95 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * The IntList class is the primitive sibling of FastArList: a growable array
+ * of ints, which avoids boxing every element as an Integer.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class IntList {
+
+    private int[] arr;
+    private int N;
+
+    /**
+     * Constructor for the IntList class
+     * @param initialSize The initial capacity of the list
+     */
+    public IntList(int initialSize) {
+        arr = new int[Math.max(initialSize, 1)];
+        N = 0;
+    }
+
+    /**
+     * Constructor for the IntList class
+     */
+    public IntList() {
+        this(4);
+    }
+
+    /**
+     * Adds a single item to the list
+     * @param item The item to add
+     */
+    public void add(int item) {
+        if (N == arr.length) {
+            arr = Arrays.copyOf(arr, arr.length * 2);
+        }
+        arr[N++] = item;
+    }
+
+    /**
+     * Returns the item at the given index
+     * @param index The index
+     * @return The item at the index
+     */
+    public int get(int index) {
+        return arr[index];
+    }
+
+    /**
+     * Replaces the item at the given index
+     * @param index The index
+     * @param item The new item
+     */
+    public void set(int index, int item) {
+        arr[index] = item;
+    }
+
+    /**
+     * Removes and returns the last item of the list
+     * @return The last item of the list
+     */
+    public int pop() {
+        return arr[--N];
+    }
+
+    /**
+     * Returns the length of the list
+     * @return the length of the list
+     */
+    public int size() {
+        return N;
+    }
+
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    /**
+     * Empties the list (keeping its capacity)
+     */
+    public void clear() {
+        N = 0;
+    }
+
+    /**
+     * Returns a copy of the list as an array
+     * @return a copy of the list as an array
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(arr, N);
+    }
+}
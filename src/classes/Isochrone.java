@@ -0,0 +1,136 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * The Isochrone class is the area that can be reached from a node within a
+ * given drive time: the road edges that can be driven completely and the
+ * convex hull around the reached intersections, for drawing as an overlay.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class Isochrone {
+
+    public final long sourceID;
+    public final float limit; // The drive time budget in minutes
+    public final Road.Edge[] edges; // The edges reached within the budget
+    public final float[] hullX; // The convex hull around the reached nodes,
+    public final float[] hullY; // counter-clockwise in map coordinates
+
+    private Isochrone(long sourceID, float limit, Road.Edge[] edges, float[] hullX, float[] hullY) {
+        this.sourceID = sourceID;
+        this.limit = limit;
+        this.edges = edges;
+        this.hullX = hullX;
+        this.hullY = hullY;
+    }
+
+    /**
+     * Computes the isochrone of a node with a Dijkstra search that stops at
+     * the drive time budget
+     * @param context The search context to use
+     * @param source The index of the start node
+     * @param limit The drive time budget in minutes
+     * @return The isochrone of the node
+     */
+    public static Isochrone compute(SearchContext context, int source, float limit) {
+        Graph graph = context.graph;
+        IntList reached = new IntList(256);
+        context.searchAll(source, false, limit, reached);
+
+        IntList arcs = new IntList(256);
+        for (int i = 0; i < reached.size(); i++) {
+            int v = reached.get(i);
+            float dv = context.distTo(v);
+            for (int arc = graph.adjStart(v), end = graph.adjEnd(v); arc < end; arc++) {
+                if (dv + graph.weight(arc) <= limit) {
+                    arcs.add(arc);
+                }
+            }
+        }
+        Road.Edge[] edges = graph.segments(arcs);
+
+        long[] points = new long[reached.size()];
+        for (int i = 0; i < points.length; i++) {
+            int v = reached.get(i);
+            points[i] = pack(graph.x(v), graph.y(v));
+        }
+        int[] hull = convexHull(points);
+        float[] hullX = new float[hull.length];
+        float[] hullY = new float[hull.length];
+        for (int i = 0; i < hull.length; i++) {
+            hullX[i] = unpackX(points[hull[i]]);
+            hullY[i] = unpackY(points[hull[i]]);
+        }
+        return new Isochrone(graph.id(source), limit,
+                edges, hullX, hullY);
+    }
+
+    /**
+     * Packs a point into a long that sorts by x, then by y
+     */
+    private static long pack(float x, float y) {
+        return ((long)sortable(x) << 32) | ((sortable(y) ^ 0x80000000L) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Maps the bits of a float to an int with the same order
+     */
+    private static int sortable(float f) {
+        int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    private static float fromSortable(int bits) {
+        return Float.intBitsToFloat(bits ^ ((bits >> 31) & 0x7FFFFFFF));
+    }
+
+    private static float unpackX(long point) {
+        return fromSortable((int)(point >> 32));
+    }
+
+    private static float unpackY(long point) {
+        return fromSortable((int)point ^ 0x80000000);
+    }
+
+    /**
+     * The cross product of the vectors o->a and o->b
+     */
+    private static double cross(long o, long a, long b) {
+        double ox = unpackX(o), oy = unpackY(o);
+        return (unpackX(a) - ox) * (unpackY(b) - oy) 
+                - (unpackY(a) - oy) * (unpackX(b) - ox);
+    }
+
+    /**
+     * Finds the convex hull of the points with Andrew's monotone chain
+     * @param points The packed points (sorted by the method)
+     * @return The indices of the hull points, counter-clockwise
+     */
+    private static int[] convexHull(long[] points) {
+        Arrays.sort(points);
+        int n = points.length;
+        if (n < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] hull = new int[2 * n];
+        int k = 0;
+        for (int i = 0; i < n; i++) { // Lower hull
+            while (k >= 2 && cross(points[hull[k - 2]], points[hull[k - 1]], points[i]) <= 0) {
+                k--;
+            }
+            hull[k++] = i;
+        }
+        for (int i = n - 2, lower = k + 1; i >= 0; i--) { // Upper hull
+            while (k >= lower && cross(points[hull[k - 2]], points[hull[k - 1]], points[i]) <= 0) {
+                k--;
+            }
+            hull[k++] = i;
+        }
+        return Arrays.copyOf(hull, k - 1); // The last point is the first
+    }
+}
@@ -0,0 +1,253 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The Landmarks class holds the drive times between every node of a graph
+ * and a few landmark nodes near the edge of the map. By the triangle
+ * inequality they give a lower bound on the drive time between any two
+ * nodes, which is a far better A* heuristic than the straight-line distance
+ * over the top speed (this is known as ALT). They take 4 bytes per node for
+ * each landmark, or 8 if the graph has one-way roads, so only a few are
+ * kept.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class Landmarks {
+
+    public static final int defaultCount = 8;
+    // The number of landmarks used by a single query
+    public static final int activeCount = 4;
+    // The number of roots tried when looking for the main road network
+    private static final int componentRoots = 8;
+
+    public final int count;
+    private final int[] nodes; // The node index of each landmark
+    // The drive times from and to the landmarks, by node (node * count + i)
+    private final float[] from;
+    private final float[] to; // The same array as 'from' if every road is two-way
+
+    private Landmarks(int[] nodes, int size, boolean symmetric) {
+        this.nodes = nodes;
+        this.count = nodes.length;
+        from = new float[size * count];
+        to = symmetric? from: new float[size * count];
+    }
+
+    /**
+     * Selects landmarks spread around the edge of the given bounds and
+     * computes the drive times to and from them
+     * @param graph The graph
+     * @param bounds The bounds of the map
+     * @param count The number of landmarks to select
+     * @return The landmarks
+     */
+    public static Landmarks select(Graph graph, Rect bounds, int count) {
+        float cx = bounds.x + bounds.width / 2;
+        float cy = bounds.y + bounds.height / 2;
+        SearchContext context = new SearchContext(graph);
+        boolean[] connected = mainComponent(graph, context);
+
+        // Pick the node furthest from the center in each of 'count' sectors
+        int[] best = new int[count];
+        float[] bestDist = new float[count];
+        Arrays.fill(best, -1);
+        for (int v = 0; v < graph.size(); v++) {
+            if (!connected[v]) {
+                continue; // An island or a dead end would give no bounds
+            }
+            float dx = graph.x(v) - cx;
+            float dy = graph.y(v) - cy;
+            double angle = Math.atan2(dy, dx) + Math.PI;
+            int sector = Math.min((int)(angle / (2 * Math.PI) * count), count - 1);
+            float d = dx * dx + dy * dy;
+            if (best[sector] == -1 || d > bestDist[sector]) {
+                best[sector] = v;
+                bestDist[sector] = d;
+            }
+        }
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (best[i] != -1) {
+                best[found++] = best[i];
+            }
+        }
+        Landmarks landmarks = new Landmarks(Arrays.copyOf(best, found), graph.size(),
+                graph.isSymmetric());
+        for (int i = 0; i < found; i++) {
+            landmarks.fill(context, i, false, landmarks.from);
+            if (landmarks.to != landmarks.from) { // Otherwise the times are the same both ways
+                landmarks.fill(context, i, true, landmarks.to);
+            }
+        }
+        return landmarks;
+    }
+
+    /**
+     * Finds the largest set of nodes that can all reach each other, trying a
+     * few random roots since the map has islands and fragments
+     */
+    private static boolean[] mainComponent(Graph graph, SearchContext context) {
+        Random random = new Random(graph.size());
+        boolean[] best = new boolean[graph.size()];
+        int bestSize = 0;
+        for (int tries = 0, roots = 0; tries < 1000 && roots < componentRoots; tries++) {
+            int root = random.nextInt(graph.size());
+            if (graph.adjStart(root) == graph.adjEnd(root) || best[root]) {
+                continue; // Not a road node, or already in the best component
+            }
+            roots++;
+            boolean[] connected = new boolean[graph.size()];
+            context.searchAll(root, false, Float.POSITIVE_INFINITY);
+            for (int v = 0; v < connected.length; v++) {
+                connected[v] = context.distTo(v) < Float.POSITIVE_INFINITY;
+            }
+            context.searchAll(root, true, Float.POSITIVE_INFINITY);
+            int size = 0;
+            for (int v = 0; v < connected.length; v++) {
+                connected[v] &= context.distTo(v) < Float.POSITIVE_INFINITY;
+                if (connected[v]) {
+                    size++;
+                }
+            }
+            if (size > bestSize) {
+                best = connected;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stores the drive times from (or to) a landmark
+     */
+    private void fill(SearchContext context, int landmark, boolean reverse, float[] times) {
+        context.searchAll(nodes[landmark], reverse, Float.POSITIVE_INFINITY);
+        int size = times.length / count;
+        for (int v = 0; v < size; v++) {
+            times[v * count + landmark] = context.distTo(v);
+        }
+    }
+
+    /**
+     * Returns the node index of a landmark
+     * @param i The landmark
+     * @return The node index of the landmark
+     */
+    public int node(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Returns the lower bound on the drive time from v to t given by a
+     * single landmark
+     */
+    private float bound(int v, int t, int i) {
+        int vi = v * count + i;
+        int ti = t * count + i;
+        // d(v,t) >= d(L,t) - d(L,v) and d(v,t) >= d(v,L) - d(t,L)
+        // Unreachable landmarks give NaN, which fails the comparisons
+        float bound = 0;
+        float d = from[ti] - from[vi];
+        if (d > bound) {
+            bound = d;
+        }
+        d = to[vi] - to[ti];
+        if (d > bound) {
+            bound = d;
+        }
+        return bound;
+    }
+
+    /**
+     * Picks the landmarks that give the best bound between the source and
+     * the target, since using all of them for every node costs more than
+     * the few extra nodes it saves
+     * @param source The index of the start node
+     * @param target The index of the target node
+     * @param active Where to put the chosen landmarks
+     * @return The number of chosen landmarks
+     */
+    public int selectActive(int source, int target, int[] active) {
+        int chosen = Math.min(active.length, count);
+        float[] bounds = new float[chosen];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            float b = bound(source, target, i);
+            if (n < chosen) {
+                n++;
+            } else if (b <= bounds[n - 1]) {
+                continue;
+            }
+            // Insertion into the sorted (descending) list of the best
+            int j = n - 1;
+            while (j > 0 && bounds[j - 1] < b) {
+                bounds[j] = bounds[j - 1];
+                active[j] = active[j - 1];
+                j--;
+            }
+            bounds[j] = b;
+            active[j] = i;
+        }
+        return chosen;
+    }
+
+    /**
+     * Returns a lower bound on the drive time from v to the target
+     * @param v The index of the node
+     * @param target The index of the target node
+     * @param active The landmarks to use
+     * @param n The number of landmarks to use
+     * @return A lower bound on the drive time from v to the target
+     */
+    public float lowerBound(int v, int target, int[] active, int n) {
+        float best = 0;
+        for (int i = 0; i < n; i++) {
+            float b = bound(v, target, active[i]);
+            if (b > best) {
+                best = b;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Compares the number of settled nodes of A* with the straight-line
+     * heuristic and with landmarks on random routes ('krak' or 'osm')
+     * @param args
+     */
+    public static void main(String[] args) throws Graph.NoPathException {
+        Datafile file = (args.length > 0 && args[0].equals("osm"))? NewLoader.osmdata: NewLoader.krakdata;
+        Model model = NewLoader.loadData(file);
+        Graph graph = new Graph(model);
+        long t1 = System.nanoTime();
+        Landmarks landmarks = select(graph, model.bounds, defaultCount);
+        System.out.println("Selected "+landmarks.count+" landmarks in "
+                +(System.nanoTime()-t1)/1e9+" sec");
+
+        SearchContext context = new SearchContext(graph);
+        Random random = new Random(42);
+        long plain = 0, alt = 0;
+        int routes = 0;
+        while (routes < 200) {
+            int s = random.nextInt(graph.size());
+            int t = random.nextInt(graph.size());
+            if (!graph.hasNode(s) || !graph.hasNode(t)) {
+                continue;
+            }
+            try {
+                context.findPath(s, t);
+            } catch (Graph.NoPathException ex) {
+                continue;
+            }
+            plain += context.settled();
+            context.findPath(landmarks, s, t);
+            alt += context.settled();
+            routes++;
+        }
+        System.out.println("Settled nodes per route, straight line: "+plain/routes
+                +", landmarks: "+alt/routes);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,125 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * The LongIntMap class is a hash map from primitive longs to primitive ints,
+ * using open addressing with linear probing like LongMap. An entry only costs
+ * a long and an int in two arrays, and nothing is ever boxed. Negative values
+ * are not allowed (-1 marks free slots, and is returned for missing keys).
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class LongIntMap {
+
+    private static final float maxLoad = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int N; // The number of entries
+    private int mask; // The capacity minus one (capacity is a power of two)
+    private int threshold; // The size at which the map grows
+
+    /**
+     * Constructor for the LongIntMap class
+     * @param expectedSize How many entries the map is expected to hold
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = 2;
+        while (capacity * maxLoad < expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Constructor for the LongIntMap class
+     */
+    public LongIntMap() {
+        this(16);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, -1);
+        mask = capacity - 1;
+        threshold = (int)(capacity * maxLoad);
+    }
+
+    /**
+     * Spreads the bits of the key, since node ids are often sequential
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Returns the value of the given key, or -1 if it isn't there
+     * @param key The key to look up
+     * @return The value of the key or -1
+     */
+    public int get(long key) {
+        int i = slot(key);
+        while (values[i] >= 0) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Maps the key to the given value unless the key is already mapped
+     * @param key The key
+     * @param value The value (not negative)
+     * @return The current value of the key, or -1 if the value was added
+     */
+    public int putIfAbsent(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("LongIntMap does not allow negative values");
+        }
+        int i = slot(key);
+        while (values[i] >= 0) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++N > threshold) {
+            grow();
+        }
+        return -1;
+    }
+
+    /**
+     * Doubles the capacity of the map and reinserts the entries
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] >= 0) {
+                int i = slot(oldKeys[j]);
+                while (values[i] >= 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the map
+     * @return the number of entries in the map
+     */
+    public int size() {
+        return N;
+    }
+}
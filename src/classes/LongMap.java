@@ -0,0 +1,210 @@
+package classes;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The LongMap class is a hash map from primitive longs to objects, using open
+ * addressing with linear probing. Unlike a HashMap&lt;Long, V&gt; it needs no
+ * boxed keys and no entry objects, so an entry only costs a long and a
+ * reference in two arrays. Null values are not allowed (they mark free slots).
+ * @author agent
+ * @version 18-Oct-2026
+ * @param <V> The type of the values
+ */
+public class LongMap<V> implements Iterable<V> {
+
+    private static final float maxLoad = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int N; // The number of entries
+    private int mask; // The capacity minus one (capacity is a power of two)
+    private int threshold; // The size at which the map grows
+
+    /**
+     * Constructor for the LongMap class
+     * @param expectedSize How many entries the map is expected to hold
+     */
+    public LongMap(int expectedSize) {
+        int capacity = 2;
+        while (capacity * maxLoad < expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Constructor for the LongMap class
+     */
+    public LongMap() {
+        this(16);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int)(capacity * maxLoad);
+    }
+
+    /**
+     * Returns the value in the given slot. Only values of type V are ever
+     * stored, so the cast is safe.
+     */
+    @SuppressWarnings("unchecked")
+    private V valueAt(int i) {
+        return (V)values[i];
+    }
+
+    /**
+     * Spreads the bits of the key, since node ids are often sequential
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Returns the value of the given key, or null if it isn't there
+     * @param key The key to look up
+     * @return The value of the key or null
+     */
+    public V get(long key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return valueAt(i);
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the map contains the given key
+     * @param key The key to look for
+     * @return Whether the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to the given value
+     * @param key The key
+     * @param value The value (not null)
+     * @return The previous value of the key, or null
+     */
+    public V put(long key, V value) {
+        return insert(key, value, true);
+    }
+
+    /**
+     * Maps the key to the given value unless the key is already mapped
+     * @param key The key
+     * @param value The value (not null)
+     * @return The current value of the key, or null if the value was added
+     */
+    public V putIfAbsent(long key, V value) {
+        return insert(key, value, false);
+    }
+
+    private V insert(long key, V value, boolean replace) {
+        if (value == null) {
+            throw new NullPointerException("LongMap does not allow null values");
+        }
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V previous = valueAt(i);
+                if (replace) {
+                    values[i] = value;
+                }
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++N > threshold) {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * Doubles the capacity of the map and reinserts the entries
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j]);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the map
+     * @return the number of entries in the map
+     */
+    public int size() {
+        return N;
+    }
+
+    /**
+     * Removes all entries, and releases the arrays
+     */
+    public void clear() {
+        allocate(2);
+        N = 0;
+    }
+
+    private class ValueIter implements Iterator<V> {
+        int index;
+        public ValueIter() {
+            index = advance(0);
+        }
+
+        private int advance(int i) {
+            while (i < values.length && values[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < values.length;
+        }
+
+        @Override
+        public V next() {
+            if (index >= values.length) {
+                throw new NoSuchElementException();
+            }
+            V value = valueAt(index);
+            index = advance(index + 1);
+            return value;
+        }
+
+        @Override
+        public void remove() {throw new UnsupportedOperationException("Removal not supported");}
+    }
+
+    /**
+     * Iterates over the values of the map (in no particular order)
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new ValueIter();
+    }
+}
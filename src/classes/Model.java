@@ -6,11 +6,17 @@
  */
 package classes;
 
+import enums.IndexType;
+import enums.RoadStorage;
 import enums.RoadType;
 import interfaces.IProgressBar;
+import interfaces.IRoad;
+import interfaces.SpatialIndex;
 import interfaces.StreamedContainer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 
 /**
  * Model is the model handling the tree. It used to handle the retrieval of lines.
@@ -19,8 +25,18 @@ import java.util.HashMap;
 
 public class Model implements StreamedContainer<Road> {
     public final Rect bounds;
-    private HashMap<RoadType, QuadTree> trees = new HashMap<>();
+    public final Datafile file; // The file the roads were loaded from, or null
+    // The precision of quantized coordinates, in meters
+    private static final float geometryResolution = 0.1f;
+    private final RoadStore store; // Where the roads are kept in compact mode, or null
+    private final IndexType indexType; // The kind of tree the roads are kept in
+    private HashMap<RoadType, SpatialIndex<IRoad>> trees = new HashMap<>();
     public ArrayList<RoadType> priorities;
+    // The types of road drawn first when a view is drawn coarse first
+    private static final HashSet<RoadType> coarseTypes = new HashSet<>(Arrays.asList(
+            RoadType.Highway, RoadType.HighwayExit, RoadType.PrimeRoute, RoadType.Ferry));
+    // The most units (meters) per pixel each type of road is drawn at
+    private final HashMap<RoadType, Float> maxUnitsPerPixel = new HashMap<>();
     public long roadCount = 0;
     
     /* Krak boundaries
@@ -28,7 +44,51 @@ public class Model implements StreamedContainer<Road> {
     y = [6049914.43018 : 6402050.98297]
     */
     public Model(Rect boundingBox) {
+        this(boundingBox, null, RoadStorage.Objects, IndexType.QuadTree);
+    }
+
+    /**
+     * Constructor for a model of the roads of a data file
+     * @param file The file the roads are loaded from
+     */
+    public Model(Datafile file) {
+        this(file.bounds, file, RoadStorage.Objects, IndexType.QuadTree);
+    }
+
+    /**
+     * Constructor for a model of the roads of a data file
+     * @param file The file the roads are loaded from
+     * @param storage How to keep the added roads; anything but Objects
+     * copies them into a compact road store
+     */
+    public Model(Datafile file, RoadStorage storage) {
+        this(file.bounds, file, storage, IndexType.QuadTree);
+    }
+
+    /**
+     * Constructor for a model of the roads of a data file
+     * @param file The file the roads are loaded from
+     * @param storage How to keep the added roads
+     * @param indexType The kind of tree to find the roads of an area with
+     */
+    public Model(Datafile file, RoadStorage storage, IndexType indexType) {
+        this(file.bounds, file, storage, indexType);
+    }
+
+    private Model(Rect boundingBox, Datafile file, RoadStorage storage, IndexType indexType) {
         bounds = boundingBox;
+        this.file = file;
+        this.indexType = indexType;
+        switch (storage) {
+            case Columns:
+                store = new RoadStore();
+                break;
+            case Quantized:
+                store = new RoadStore(boundingBox, geometryResolution);
+                break;
+            default:
+                store = null;
+        }
         priorities = new ArrayList<>();
         priorities.add(RoadType.Other);
         priorities.add(RoadType.Path);
@@ -36,14 +96,41 @@ public class Model implements StreamedContainer<Road> {
         priorities.add(RoadType.PrimeRoute);
         priorities.add(RoadType.HighwayExit);
         priorities.add(RoadType.Highway);
+        // Small roads are left out of wide views (Denmark is ~450 m per pixel)
+        for (RoadType type : RoadType.values()) {
+            maxUnitsPerPixel.put(type, Float.POSITIVE_INFINITY);
+        }
+        maxUnitsPerPixel.put(RoadType.Path, 10f);
+        maxUnitsPerPixel.put(RoadType.Other, 25f);
     }
 
     /**
-     * Streams the road of the given projection to a target
+     * Sets how zoomed out a type of road may be drawn, so that it isn't even
+     * looked up when it would be too small to see
+     * @param type The type of road
+     * @param upp The most units (meters) per pixel it is drawn at
+     */
+    public void setMaxUnitsPerPixel(RoadType type, float upp) {
+        maxUnitsPerPixel.put(type, upp);
+    }
+
+    /**
+     * Returns whether the given type of road is drawn at the given zoom
+     * @param type The type of road
+     * @param p The projection
+     * @return Whether the type of road is drawn with the projection
+     */
+    public boolean isVisible(RoadType type, Viewport.Projection p) {
+        return p.upp <= maxUnitsPerPixel.get(type);
+    }
+
+    /**
+     * Streams the road of the given projection to a target, leaving out the
+     * types of roads too small to be seen at its zoom (see isVisible)
      * @param target Where to stream the roads
      * @param p The projection to use as the source
      */
-    public void getRoads(StreamedContainer<Road> target, Viewport.Projection p) {
+    public void getRoads(StreamedContainer<IRoad> target, Viewport.Projection p) {
         if (p.equals(Viewport.Projection.Empty)) { 
             //System.out.println("Model received an empty projection, passing...");
             target.startStream();
@@ -51,51 +138,156 @@ public class Model implements StreamedContainer<Road> {
         } else {
             //System.out.println("[Model] Requesting tree data from "+p.source+"...");
             target.startStream();
-            for (RoadType type : priorities) {
-                trees.get(type).getIn(p.source, target);
+            // A copy, as the tiles are drawn while the types may be toggled
+            for (RoadType type : priorities.toArray(new RoadType[0])) {
+                if (isVisible(type, p)) {
+                    trees.get(type).getIn(p.source, target);
+                }
             }
             target.endStream();
         }
     }
 
     /**
-     * Streams all roads in the model to the target
+     * Returns whether the given type of road is coarse, meaning that it is
+     * one of the few major types that give the shape of the map on their own
+     * @param type The type of road
+     * @return Whether the type is coarse
+     */
+    public static boolean isCoarse(RoadType type) {
+        return coarseTypes.contains(type);
+    }
+
+    /**
+     * Streams the roads of a single type in the given projection to a target,
+     * whether or not the type is in the priorities, if it can be seen at the
+     * zoom of the projection (see isVisible)
+     * @param type The type of road
+     * @param target Where to stream the roads
+     * @param p The projection to use as the source
+     */
+    public void getRoads(RoadType type, StreamedContainer<IRoad> target, Viewport.Projection p) {
+        target.startStream();
+        if (!p.equals(Viewport.Projection.Empty) && isVisible(type, p)) {
+            trees.get(type).getIn(p.source, target);
+        }
+        target.endStream();
+    }
+
+    /**
+     * Streams every road in the given area to the target, whatever its type
      * @param target The target to stream roads to
+     * @param area The area to find roads in
      */
-    public void getAllRoads(StreamedContainer<Road> target) {
+    public void getAllRoads(StreamedContainer<IRoad> target, Rect area) {
         target.startStream();
         for (RoadType type : priorities) {
-            trees.get(type).getIn(bounds, target);
+            trees.get(type).getIn(area, target);
         }
         target.endStream();
     }
 
+    /**
+     * Streams all roads in the model to the target
+     * @param target The target to stream roads to
+     */
+    public void getAllRoads(StreamedContainer<IRoad> target) {
+        getAllRoads(target, bounds);
+    }
+
     private IProgressBar progbar = null;
     @Override
     public void startStream() {
         // Find the bounding area of the intersections
        // System.out.println("Populating the Quad Tree...");
         for (RoadType type : RoadType.values()) {
-            trees.put(type, new QuadTree(bounds, (short)400, (short)30));
+            trees.put(type, createIndex(indexType, bounds));
         }
     }
 
+    /**
+     * Creates an empty spatial index of the given type
+     * @param indexType The type of index
+     * @param bounds The area of the roads to index
+     * @return An empty spatial index
+     */
+    static SpatialIndex<IRoad> createIndex(IndexType indexType, Rect bounds) {
+        switch (indexType) {
+            case RTree:
+                return new RTree<>();
+            case LooseQuadTree:
+                return roadIndex(new QuadTree(bounds, (short)400, (short)30, true));
+            default:
+                return roadIndex(new QuadTree(bounds, (short)400, (short)30));
+        }
+    }
+
+    /**
+     * Returns a quad tree as an index of roads. Only roads are ever added to
+     * the trees of the model, so only roads are found in them.
+     */
+    @SuppressWarnings("unchecked")
+    private static SpatialIndex<IRoad> roadIndex(QuadTree tree) {
+        return (SpatialIndex<IRoad>)(SpatialIndex<?>)tree;
+    }
+
     @Override
     public void endStream() {
         // System.out.println("Finished populating the Quad Tree!");
+        for (SpatialIndex<IRoad> tree : trees.values()) {
+            tree.build();
+        }
+        if (store != null) {
+            store.trim();
+        }
         progbar = null;
     }
 
+    /**
+     * Returns whether the roads are kept in a compact road store
+     * @return whether the roads are kept in a compact road store
+     */
+    public boolean isCompact() {
+        return store != null;
+    }
+
+    /**
+     * Returns the road store of a compact model
+     * @return the road store, or null if the roads are kept as objects
+     */
+    public RoadStore getStore() {
+        return store;
+    }
+
     @Override
     public void startStream(IProgressBar bar) {
         progbar = bar;
         startStream();
     }
 
+    /**
+     * Adds a parsed road straight to the road store of a compact model
+     * @param data The fields of the road
+     */
+    public void add(RoadStore.RoadData data) {
+        if (store == null) {
+            throw new RuntimeException("Only a compact model keeps parsed roads");
+        }
+        roadCount += 1;
+        trees.get(data.type).add(store.add(data));
+        if (progbar != null) {
+            progbar.update(1);
+        }
+    }
+
     @Override
     public void add(Road obj) {
         roadCount += 1;
-        trees.get(obj.type).add(obj);
+        IRoad road = (store != null)? store.add(obj): obj;
+        if (store == null) {
+            obj.detailLevels(); // So that drawing zoomed out never has to
+        }
+        trees.get(obj.type).add(road);
         if (progbar != null) {
             progbar.update(1);
         }
@@ -1,6 +1,9 @@
 package classes;
 
+import enums.IndexType;
+import enums.RoadStorage;
 import enums.RoadType;
+import interfaces.StreamedContainer;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -9,7 +12,17 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /* OSM
 x: [52.691433 : 62.0079024]
@@ -61,45 +74,85 @@ public class NewLoader {
             "utf-8"
     );
     
-    public static HashMap<Long, Road.Node> loaded = new HashMap<>();
+    public static ConcurrentLongMap<Road.Node> loaded = new ConcurrentLongMap<>(1 << 20);
+    private static final AtomicInteger nextIndex = new AtomicInteger();
         
     public static final char sepchar = '@';
-    public static Road loadRoad(String line) {
-        // Split the road into metadata, nodes and drive times
-        int firstSplit = line.indexOf(sepchar);
-        int secondSplit = line.indexOf(sepchar, firstSplit+1);
-        if ((firstSplit == -1) || (secondSplit == -1)) {
-            throw new RuntimeException("Could not split at '"+sepchar+"' in the line:\n"+line);
+    private static final int chunkSize = 2048; // Lines parsed per task
+    
+    /**
+     * Returns an upper bound of the node indices handed out so far
+     * (indices may be skipped when two threads create the same node)
+     * @return an upper bound of the node indices handed out so far
+     */
+    public static int nodeCount() {
+        return nextIndex.get();
+    }
+    
+    /**
+     * Forgets the loaded nodes and starts the node indices over, eg. before
+     * another data set is loaded
+     */
+    public static void clearNodes() {
+        loaded.clear();
+        nextIndex.set(0);
+    }
+    
+    /**
+     * Returns the loaded node with the given id, creating it with the next
+     * free index if it hasn't been loaded yet
+     * @param id The id of the node
+     * @param x The x-coordinate of the node
+     * @param y The y-coordinate of the node
+     * @return The loaded node with the id
+     */
+    public static Road.Node getNode(long id, float x, float y) {
+        Road.Node node = loaded.get(id);
+        if (node == null) {
+            node = new Road.Node(id, nextIndex.getAndIncrement(), x, y);
+            Road.Node other = loaded.putIfAbsent(id, node);
+            if (other != null) { // Another thread got there first
+                node = other;
+            }
         }
-        String meta = line.substring(0, firstSplit);
-        String nodestring = line.substring(firstSplit+1, secondSplit);
-        String drivetimestring = line.substring(secondSplit+1);
+        return node;
+    }
+    
+    /**
+     * Parses a single road from a line of the text format. Nodes are shared
+     * through the 'loaded' map, so several threads may parse roads at once.
+     * @param line The line to parse
+     * @return The parsed road
+     */
+    public static Road loadRoad(String line) {
+        String[] parts = split(line);
+        String meta = parts[0];
+        String nodestring = parts[1];
+        String drivetimestring = parts[2];
                 
-        Utils.Tokenizer.setLine(meta);
-        String      name        = Utils.Tokenizer.getString();
-        RoadType    type        = RoadType.fromValue(Utils.Tokenizer.getInt());
-        short       zip         = Utils.Tokenizer.getShort();
-        short       speedLimit  = Utils.Tokenizer.getShort();
-        boolean     oneway      = Utils.Tokenizer.getBool();
+        DataLine tokens = new DataLine(meta);
+        String      name        = tokens.getString();
+        RoadType    type        = RoadType.fromValue(tokens.getInt());
+        short       zip         = tokens.getShort();
+        short       speedLimit  = tokens.getShort();
+        boolean     oneway      = tokens.getBool();
         
-        Utils.Tokenizer.setLine(nodestring);
+        tokens = new DataLine(nodestring);
         ArrayList<Road.Node> nodes = new ArrayList<>();
         float minX = Float.MAX_VALUE;
         float maxX = Float.MIN_VALUE;
         float minY = minX;
         float maxY = maxX;
-        while (Utils.Tokenizer.hasNext()) {
-            long id = Utils.Tokenizer.getLong(); // Buffered node loading
-            Road.Node node;
-            if (!loaded.containsKey(id)) {
-                float x = Utils.Tokenizer.getFloat();
-                float y = Utils.Tokenizer.getFloat();
-                node = new Road.Node(id, x, y);
-                loaded.put(id, node);
+        while (tokens.hasMore()) {
+            long id = tokens.getLong(); // Buffered node loading
+            Road.Node node = loaded.get(id);
+            if (node == null) {
+                float x = tokens.getFloat();
+                float y = tokens.getFloat();
+                node = getNode(id, x, y);
             } else {
-                Utils.Tokenizer.discard();
-                Utils.Tokenizer.discard();
-                node = loaded.get(id);
+                tokens.discard();
+                tokens.discard();
             }
             minX = (node.x < minX)? node.x: minX;
             maxX = (node.x > maxX)? node.x: maxX;
@@ -112,9 +165,9 @@ public class NewLoader {
         float[] driveTimes;
         if (drivetimestring.length() != 0) {
             driveTimes = new float[nodes.size()-1];
-            Utils.Tokenizer.setLine(drivetimestring);
+            tokens = new DataLine(drivetimestring);
             for (int i = 0; i < driveTimes.length; i++) {
-                driveTimes[i] = Utils.Tokenizer.getFloat();
+                driveTimes[i] = tokens.getFloat();
             }
         } else {
             driveTimes = new float[0];
@@ -124,28 +177,151 @@ public class NewLoader {
                 nodes.toArray(new Road.Node[nodes.size()]), driveTimes, bounds);
     }
     
-    public static Model loadData(final Datafile file) {
-        Rect bounds = new Rect(0,0,0,0);
-        final Model model = new Model(file.bounds);
+    /**
+     * Splits a line of the text format into metadata, nodes and drive times
+     */
+    private static String[] split(String line) {
+        int firstSplit = line.indexOf(sepchar);
+        int secondSplit = line.indexOf(sepchar, firstSplit+1);
+        if ((firstSplit == -1) || (secondSplit == -1)) {
+            throw new RuntimeException("Could not split at '"+sepchar+"' in the line:\n"+line);
+        }
+        return new String[] {
+            line.substring(0, firstSplit),
+            line.substring(firstSplit+1, secondSplit),
+            line.substring(secondSplit+1)
+        };
+    }
+    
+    /**
+     * Parses a single road from a line of the text format into the fields a
+     * road store keeps, without building a Road or registering its nodes
+     * (the store numbers the nodes itself, see RoadStore).
+     * @param line The line to parse
+     * @return The fields of the parsed road
+     */
+    public static RoadStore.RoadData parseRoad(String line) {
+        String[] parts = split(line);
+        DataLine tokens = new DataLine(parts[0]);
+        String      name        = tokens.getString();
+        RoadType    type        = RoadType.fromValue(tokens.getInt());
+        short       zip         = tokens.getShort();
+        short       speedLimit  = tokens.getShort();
+        boolean     oneway      = tokens.getBool();
+        
+        tokens = new DataLine(parts[1]);
+        long[] ids = new long[8];
+        float[] xs = new float[8];
+        float[] ys = new float[8];
+        int n = 0;
+        while (tokens.hasMore()) {
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+                xs = Arrays.copyOf(xs, n * 2);
+                ys = Arrays.copyOf(ys, n * 2);
+            }
+            ids[n] = tokens.getLong();
+            xs[n] = tokens.getFloat();
+            ys[n] = tokens.getFloat();
+            n++;
+        }
+        
+        float[] driveTimes = new float[0];
+        if (parts[2].length() != 0) {
+            driveTimes = new float[n-1];
+            tokens = new DataLine(parts[2]);
+            for (int i = 0; i < driveTimes.length; i++) {
+                driveTimes[i] = tokens.getFloat();
+            }
+        }
+        
+        return new RoadStore.RoadData(name, type, zip, speedLimit, oneway, 
+                Arrays.copyOf(ids, n), Arrays.copyOf(xs, n), Arrays.copyOf(ys, n), 
+                driveTimes);
+    }
+    
+    /**
+     * Loads the roads of the given file into a new model the way the program
+     * uses it, with the roads in a quantized road store (see RoadStore) and
+     * packed R-trees
+     * @param file The file to load
+     * @return A model with the roads of the file
+     */
+    public static Model loadData(Datafile file) {
+        return loadData(file, RoadStorage.Quantized);
+    }
+    
+    /**
+     * Loads the roads of the given file into a new model, which finds the
+     * roads of an area with packed R-trees (see RTree)
+     * @param file The file to load
+     * @param storage How the model should keep the roads (see RoadStore)
+     * @return A model with the roads of the file
+     */
+    public static Model loadData(Datafile file, RoadStorage storage) {
+        return loadData(file, storage, IndexType.RTree);
+    }
+    
+    /**
+     * Loads the roads of the given file into a new model
+     * @param file The file to load
+     * @param storage How the model should keep the roads (see RoadStore)
+     * @param indexType The kind of tree the model should find roads with
+     * @return A model with the roads of the file
+     */
+    public static Model loadData(Datafile file, RoadStorage storage, IndexType indexType) {
+        clearNodes(); // The nodes of an earlier data set aren't shared
+        if (!file.binary && Utils.hasFile(file.snapshot().filename)) {
+            // Prefer the converted snapshot (see BinaryLoader.main) unless the
+            // text file has changed since. Without the text file it is all there is.
+            if (!Utils.hasFile(file.filename) || BinaryLoader.isCurrent(file)) {
+                file = file.snapshot();
+            } else {
+                System.out.println("The snapshot of '"+file.filename+"' is outdated, "
+                        + "so the text file is loaded (run BinaryLoader to convert it again)");
+            }
+        }
+        final Model model = new Model(file, storage, indexType);
         
         ProgressBar progbar = new ProgressBar();
         progbar.setTarget(file.progressDescription, file.lines);
         
         model.startStream(progbar);
-        try (InputStream stream = Utils.getFileStream(file.filename);
-            InputStreamReader is = new InputStreamReader(stream, Charset.forName(file.charset));
-            BufferedReader br = new BufferedReader(is)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                //loadRoad(line);
-                model.add(loadRoad(line));
+        if (file.binary) {
+            try {
+                BinaryLoader.loadRoads(file, model);
+            } catch (IOException ex) {
+                throw new RuntimeException("Could not load road data from '" + file.filename + "'");
+            } catch (Utils.LoadFileException ex) {
+                System.out.println("Could not load the file. Error: "+ex);
             }
-        } catch (IOException ex) {
-            throw new RuntimeException("Could not load road data from '" + file.filename + "'");
-        } catch (Utils.LoadFileException ex) {
-            System.out.println("Could not load the file. Error: "+ex);
+        } else if (model.isCompact()) { // Straight into the road store
+            loadText(file, new LineParser<RoadStore.RoadData>() {
+                @Override
+                public RoadStore.RoadData parse(String line) {
+                    return parseRoad(line);
+                }
+                @Override
+                public void add(RoadStore.RoadData road) {
+                    model.add(road);
+                }
+            });
+        } else {
+            loadText(file, new LineParser<Road>() {
+                @Override
+                public Road parse(String line) {
+                    return loadRoad(line);
+                }
+                @Override
+                public void add(Road road) {
+                    model.add(road);
+                }
+            });
         }
         model.endStream();
+        if (model.isCompact()) { // The store has the nodes (a snapshot registers them)
+            clearNodes();
+        }
 
         
         MemoryMXBean mxbean = ManagementFactory.getMemoryMXBean();
@@ -155,6 +331,111 @@ public class NewLoader {
         return model;
     }
     
+    /**
+     * Parses the lines of the text format into roads of some kind, and adds
+     * them where they belong
+     */
+    private static abstract class LineParser<T> {
+        public abstract T parse(String line); // Called on the parsing threads
+        public abstract void add(T road); // Called in the order of the file
+    }
+    
+    /**
+     * Parses a chunk of lines into roads
+     */
+    private static class ChunkParser<T> implements Callable<List<T>> {
+        private final LineParser<T> parser;
+        private final String[] lines;
+        private final int count;
+        public ChunkParser(LineParser<T> parser, String[] lines, int count) {
+            this.parser = parser;
+            this.lines = lines;
+            this.count = count;
+        }
+        @Override
+        public List<T> call() {
+            List<T> roads = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                roads.add(parser.parse(lines[i]));
+            }
+            return roads;
+        }
+    }
+    
+    /**
+     * Parses the roads of the given text file and hands them to the parser
+     * to add. A reader thread splits the file into chunks, which are parsed 
+     * on all cores, while the calling thread adds the parsed roads in the 
+     * order of the file.
+     * @param file The text file to load
+     * @param parser How to parse and add the roads
+     */
+    private static <T> void loadText(final Datafile file, final LineParser<T> parser) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        final ExecutorService parsers = Executors.newFixedThreadPool(threads);
+        final BlockingQueue<Future<List<T>>> parsed = new ArrayBlockingQueue<>(threads * 4);
+        final FutureTask<List<T>> endOfFile = new FutureTask<>(new Callable<List<T>>() {
+            @Override
+            public List<T> call() { return new ArrayList<>(); }
+        });
+        endOfFile.run();
+        final Exception[] failure = new Exception[1];
+        
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (InputStream stream = Utils.getFileStream(file.filename);
+                    InputStreamReader is = new InputStreamReader(stream, Charset.forName(file.charset));
+                    BufferedReader br = new BufferedReader(is)) {
+                    String[] chunk = new String[chunkSize];
+                    int count = 0;
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        chunk[count++] = line;
+                        if (count == chunkSize) {
+                            parsed.put(parsers.submit(new ChunkParser<>(parser, chunk, count)));
+                            chunk = new String[chunkSize];
+                            count = 0;
+                        }
+                    }
+                    if (count != 0) {
+                        parsed.put(parsers.submit(new ChunkParser<>(parser, chunk, count)));
+                    }
+                } catch (IOException | Utils.LoadFileException ex) {
+                    failure[0] = ex;
+                } catch (InterruptedException ex) {
+                    return; // The loading was aborted
+                }
+                try {
+                    parsed.put(endOfFile);
+                } catch (InterruptedException ex) {}
+            }
+        }, "Road reader");
+        reader.setDaemon(true);
+        reader.start();
+        
+        try {
+            Future<List<T>> next;
+            while ((next = parsed.take()) != endOfFile) {
+                for (T road : next.get()) {
+                    parser.add(road);
+                }
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException("Could not load road data from '" + file.filename + "': "+ex);
+        } finally {
+            reader.interrupt();
+            parsers.shutdownNow();
+            DataLine.resetInterner(); // The names are kept by the roads now
+        }
+        
+        if (failure[0] instanceof Utils.LoadFileException) {
+            System.out.println("Could not load the file. Error: "+failure[0]);
+        } else if (failure[0] != null) {
+            throw new RuntimeException("Could not load road data from '" + file.filename + "'");
+        }
+    }
+    
     public static void main(String[] args) {
         //System.out.println("Loading model...");
         long t1 = System.nanoTime();
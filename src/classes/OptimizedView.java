@@ -1,9 +1,6 @@
 package classes;
 
 import classes.Viewport.Projection;
-import enums.RoadType;
-import interfaces.IProgressBar;
-import interfaces.StreamedContainer;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -17,39 +14,44 @@ import javax.swing.JPanel;
 
 /**
  * The OptimizedView class is a faster view using an underlying buffered image
- * to optimize its draw calls when the map is moved.
+ * to optimize its draw calls when the map is moved. The image is a frame of
+ * the map drawn in the background (see RenderScheduler), which is shown moved
+ * along with the map until the frame of the new position arrives. If given a
+ * tile layer, it instead paints the map from the tiles of the layer (see
+ * TileLayer).
  * @author Jakob Lautrup Nysom (jaln@itu.dk)
  * @version 10-Mar-2014
  */
-public class OptimizedView extends JPanel implements StreamedContainer<Road> {
+public class OptimizedView extends JPanel {
     GraphicsConfiguration gfx_config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration(); // Voodoo
     
     public final RenderInstructions ins;
     public static Color clearColor = Color.WHITE;
     
     private BufferedImage image;
+    private Projection imageProjection = null; // The projection the image was drawn with
     private BufferedImage backbuffer;
     private boolean scaled      = false;
     private Rect markerRect     = null;
     private Road.Edge[] path    = new Road.Edge[0];
     private Road.Node fromNode  = null;
     private Road.Node toNode    = null;
+    private Isochrone isochrone = null;
     
     // Strokes
     private final BasicStroke dotStroke = new BasicStroke(2, 
             BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] {3,2}, 0);
-    private final BasicStroke ferryStroke = new BasicStroke(1, 
-            BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] {5,4}, 0);
     private final BasicStroke pathStroke = new BasicStroke(4, 
             BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL);
     private final Color startColor = new Color(32, 107, 47);
     private final Color endColor = new Color(87, 33, 122);
     private final Color pathColor = new Color(255, 115, 0);
+    private final Color reachColor = new Color(0, 120, 200);
+    private final Color areaColor = new Color(0, 120, 200, 50);
     //private HashMap<RoadType, BufferedImage> layers = new HashMap<>();
     
-    // Values used for the streamed image drawing
-    private Graphics2D activeGraphics;
     private Projection activeProjection;
+    private TileLayer tiles = null; // The tiles to paint the map from, if any
     
     /**
      * Constructor for the OptimizedView class
@@ -97,6 +99,15 @@ public class OptimizedView extends JPanel implements StreamedContainer<Road> {
         repaint();
     }
     
+    /**
+     * Sets the reachable area to be drawn. Use 'null' to clear.
+     * @param isochrone The area
+     */
+    public void setIsochrone(Isochrone isochrone) {
+        this.isochrone = isochrone;
+        repaint();
+    }
+    
     public Road.Node getPathStart() {
         return fromNode;
     }
@@ -114,6 +125,32 @@ public class OptimizedView extends JPanel implements StreamedContainer<Road> {
         activeProjection = p;
     }
     
+    /**
+     * Makes the view paint the map from the given tile layer rather than
+     * from its own image. Use 'null' to go back to the image.
+     * @param tiles The tile layer
+     */
+    public void setTiles(TileLayer tiles) {
+        this.tiles = tiles;
+        if (tiles != null) {
+            tiles.setListener(new Runnable() {
+                @Override
+                public void run() {
+                    repaint(); // Safe to call from the tile workers
+                }
+            });
+        }
+        repaint();
+    }
+    
+    /**
+     * Returns the tile layer the view paints from, or null if none
+     * @return the tile layer the view paints from
+     */
+    public TileLayer getTiles() {
+        return tiles;
+    }
+    
     /**
      * Set the marker rect to be drawn
      * @param rect The rect
@@ -141,38 +178,15 @@ public class OptimizedView extends JPanel implements StreamedContainer<Road> {
         backbuffer = previous;
     }
     
-    /**
-     * Moves the current image based on the offset, then draws the given array
-     * of lines. Used for panning.
-     * @param x The Eastward offset 
-     * @param y The Nortward offset 
-     */
-    public void offsetImage(int x, int y) {
-        swapBuffers();
-        clear(image); // Clear the whole image
-        Graphics2D g2d = image.createGraphics();
-        g2d.drawImage(backbuffer, x, -y, this); // Draw the old image offset
-        g2d.dispose();
-        repaint();
-    }
-    
-    public void extend() {
-        backbuffer = createImage(getSize(), false);
-        Graphics2D g2d = backbuffer.createGraphics();
-        g2d.setColor(clearColor);
-        g2d.fillRect(image.getWidth(), 0, getWidth() - image.getWidth(), getHeight());
-        g2d.drawImage(image, 0, 0, null);
-        g2d.dispose();
-        image = createImage(getSize(), false);
-        swapBuffers();
-        repaint();
-    }
-        
     /**
      * Resizes the map somewhat naïvely
      * @param newSize 
      */
     public void scaleMap(Dimension newSize) {
+        if (tiles != null) { // The tiles are simply painted at the new size
+            repaint();
+            return;
+        }
         if (image == null) { return; }
         if (!scaled) { // The scaling is starting
             swapBuffers(); // Ensure that the backbuffer holds the scaling source
@@ -215,8 +229,26 @@ public class OptimizedView extends JPanel implements StreamedContainer<Road> {
         return img;
     }
     
+    /**
+     * Shows a finished frame of the map in place of the current image
+     * @param frame The image of the frame, the size of the view
+     * @param p The projection it was drawn with
+     */
+    public void showFrame(BufferedImage frame, Projection p) {
+        activeProjection = p;
+        imageProjection = p;
+        image = frame;
+        if (backbuffer == null || backbuffer.getWidth() != frame.getWidth()
+                || backbuffer.getHeight() != frame.getHeight()) {
+            backbuffer = createImage(getSize(), false);
+        }
+        scaled = false;
+        repaint();
+    }
+    
     public void renewImage(Projection p) {
         activeProjection = p;
+        imageProjection = p;
         image = createImage(getSize(), true);
         backbuffer = createImage(getSize(), false);
         scaled = false;
@@ -241,6 +273,9 @@ public class OptimizedView extends JPanel implements StreamedContainer<Road> {
                     (int)Math.round(markerRect.width), (int)Math.round(markerRect.height));
         }
         int h = getHeight();
+        if (isochrone != null) {
+            drawIsochrone(g2, isochrone, h);
+        }
         if (path.length != 0) {
             Graphics2D g2e = (Graphics2D)g2d.create();
             
@@ -268,91 +303,63 @@ public class OptimizedView extends JPanel implements StreamedContainer<Road> {
         }
     }
     
+    /**
+     * Draws a reachable area as a filled hull with the reached edges on top
+     * @param g2d The graphics object to draw it unto
+     * @param iso The area
+     * @param h The height of the view
+     */
+    private void drawIsochrone(Graphics2D g2d, Isochrone iso, int h) {
+        Projection p = activeProjection;
+        int n = iso.hullX.length;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = Math.round(p.target.x + (iso.hullX[i] - p.source.x) * p.ppu);
+            ys[i] = Math.round(h - (p.target.y + (iso.hullY[i] - p.source.y) * p.ppu));
+        }
+        Graphics2D g2i = (Graphics2D)g2d.create();
+        g2i.setColor(areaColor);
+        g2i.fillPolygon(xs, ys, n);
+        g2i.setColor(reachColor);
+        g2i.setStroke(new BasicStroke(2));
+        for (Road.Edge edge : iso.edges) {
+            g2i.drawLine(
+                    edge.p1.mappedX(p), 
+                    edge.p1.mappedY(p, h), 
+                    edge.p2.mappedX(p), 
+                    edge.p2.mappedY(p, h));
+        }
+        g2i.dispose();
+    }
+    
     /**
      * What happens at the default render (on resize etc.)
      * @param g 
      */
     @Override
     public void paintComponent(Graphics g) {
-        if (image != null) {
+        if (tiles != null) {
             g.setColor(clearColor);
             g.fillRect(0,0,getWidth(),getHeight());
-            g.drawImage(image, 0, 0, this);
+            tiles.paint((Graphics2D)g, activeProjection, getWidth(), getHeight());
+            drawOverlays((Graphics2D)g);
+        } else if (image != null) {
+            g.setColor(clearColor);
+            g.fillRect(0,0,getWidth(),getHeight());
+            // Moved along with the map, if it has been panned since the image was drawn
+            int x = 0, y = 0;
+            Projection ip = imageProjection, p = activeProjection;
+            if (!scaled && ip != null && p != null && ip.ppu == p.ppu) {
+                x = Math.round(p.target.x - ip.target.x + (ip.source.x - p.source.x) * p.ppu);
+                y = Math.round(ip.target.y - p.target.y - (ip.source.y - p.source.y) * p.ppu);
+            }
+            g.drawImage(image, x, y, this);
             drawOverlays((Graphics2D)g);
             g.dispose();
             
         } else {
            // System.out.println("No image set yet, so nothing to draw...");
         }
-    } 
-    
-    private IProgressBar progbar = null;
-    @Override
-    public void startStream() {
-        // System.out.println("Starting View paint routine...");
-        activeGraphics = image.createGraphics();
-        activeGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
-    }
-
-    @Override
-    public void startStream(IProgressBar bar) {
-        progbar = bar;
-        startStream();
-    }
-    
-    /**
-     * Draws all edges of a road as a poly line
-     * (This is a rather inefficient alternative to drawLines)
-     * @param road The road to draw
-     */
-    private void drawPolyLine(Road road) {
-        activeGraphics.setColor(ins.getColor(road.type));
-        int l = road.nodes.length;
-        int h = getHeight();
-        int[] xVals = new int[l];
-        int[] yVals = new int[l];
-        for (int i = 0; i < l; i++) {
-            Road.Node n = road.nodes[i];
-            xVals[i] = n.mappedX(activeProjection);
-            yVals[i] = n.mappedY(activeProjection, h);
-        }
-        activeGraphics.drawPolyline(xVals, yVals, l);
-    }
-    
-    /**
-     * Draws each edge of a road as a separate line
-     * @param road The road to draw
-     */
-    private void drawLines(Road road) {
-        activeGraphics.setColor(ins.getColor(road.type));
-        Graphics2D g2d = activeGraphics;
-        int h = getHeight();
-        if (road.type == RoadType.Ferry) {
-            g2d = (Graphics2D)activeGraphics.create();
-            g2d.setStroke(ferryStroke);
-        }
-        for (Road.Edge edge: road) {
-            //System.out.println("Drawing a line from ("+edge.p1+") to ("+edge.p2+") => "+edge.p1.mappedX(activeProjection)+" to "+edge.p2.mappedX(activeProjection));
-            g2d.drawLine(
-                    edge.p1.mappedX(activeProjection), 
-                    edge.p1.mappedY(activeProjection, h), 
-                    edge.p2.mappedX(activeProjection), 
-                    edge.p2.mappedY(activeProjection, h));
-        }
-    }
-
-    @Override
-    public void add(Road obj) {
-        drawLines(obj);
-        if (progbar != null) {
-            progbar.update(1);
-        }
-    }
-
-    @Override
-    public void endStream() {
-        // System.out.println("Painting finished");
-        repaint();
-        progbar = null;
     }
 }
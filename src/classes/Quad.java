@@ -2,37 +2,62 @@ package classes;
 
 import interfaces.QuadNode;
 import interfaces.StreamedContainer;
-import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * The Quad class divides a Rect area into smaller Rect subareas to help ease up 
  * the resources needed when working with areas with a large amount of elements.
+ *
+ * In loose mode, the subquads reach half their size beyond their own area on
+ * every side, and a node is placed in the subquad under the center of its
+ * bounds as long as it fits within that loose area. Nodes that straddle a
+ * split line thus still go down to the deepest level they fit in, instead of
+ * being kept as edge cases by the quads near the root.
  * @author Jakob
  * @author Alekxander
  * @param <T> The type of node to store in the quad
  */
 public class Quad <T extends QuadNode> {
 
-    private Quad[] subquads; // 4 subquads if necessarry. Empty if not.
-    private HashMap<Rect, FastArList<T>> edgeCases;
+    private Quad<T>[] subquads; // 4 subquads if necessarry (sw, nw, se, ne). Empty if not.
+    private Rect[] edgeRects; // The split lines of the quad (not used when loose)
+    private FastArList<T>[] edgeCases; // The nodes on each split line
     private boolean bottom; // True if the element is the bottommost element.
     private short maxNodes = 400; // Number of nodes a quad can hold before it splits.
     private final short depth; // The depth of the quad
     public final Rect area; // The area of the Quad
+    private final Rect looseArea; // The area nodes in this quad are within, when loose
+    private final boolean loose; // Whether this is a loose quad
     private final short maxDepth; // The max depth
     private FastArList<T> nodeList; // The elements in the Quad.
     
     public Quad(Rect area, short maxNodes, short maxDepth, short depth) {
+        this(area, maxNodes, maxDepth, depth, false);
+    }
+
+    /**
+     * Constructor for the Quad class
+     * @param area The area of the quad
+     * @param maxNodes The number of nodes a quad can hold before it splits
+     * @param maxDepth The max depth
+     * @param depth The depth of the quad
+     * @param loose Whether the quad (and its subquads) should be loose
+     */
+    public Quad(Rect area, short maxNodes, short maxDepth, short depth, boolean loose) {
         this.area = area;
         this.maxNodes = maxNodes;
         this.maxDepth = maxDepth;
         this.depth = depth;
-        edgeCases = new HashMap<>();
-        Rect verArea = new Rect(area.x + area.width/2, area.y, 0, area.height);
-        Rect horArea = new Rect(area.x, area.y + area.height/2, area.width, 0);
-        edgeCases.put(verArea, new FastArList<T>());
-        edgeCases.put(horArea, new FastArList<T>());
+        this.loose = loose;
+        if (loose) {
+            looseArea = new Rect(area.x - area.width/2, area.y - area.height/2,
+                    area.width * 2, area.height * 2);
+        } else {
+            looseArea = area;
+            Rect verArea = new Rect(area.x + area.width/2, area.y, 0, area.height);
+            Rect horArea = new Rect(area.x, area.y + area.height/2, area.width, 0);
+            edgeRects = new Rect[] {verArea, horArea};
+            edgeCases = newLists(2);
+        }
         nodeList = new FastArList<>();
         bottom = true;
     }
@@ -43,9 +68,13 @@ public class Quad <T extends QuadNode> {
      * @param node 
      */
     public void add(T node) {
-        for (Rect r : edgeCases.keySet()) {
-            if (node.collidesWith(r)) {
-                edgeCases.get(r).add(node);
+        if (loose) {
+            addLoose(node);
+            return;
+        }
+        for (int i = 0; i < edgeRects.length; i++) {
+            if (node.collidesWith(edgeRects[i])) {
+                edgeCases[i].add(node);
                 return; // Don't do anything else
             }
         }
@@ -56,7 +85,7 @@ public class Quad <T extends QuadNode> {
                 split();
             }
         } else {
-            for (Quad subquad : subquads) {
+            for (Quad<T> subquad : subquads) {
                 if (node.collidesWith(subquad.area)) {
                     subquad.add(node);
                     break;
@@ -65,16 +94,53 @@ public class Quad <T extends QuadNode> {
         }
     }
     
+    /**
+     * Adds an item to a loose quad. The item is kept here if it doesn't fit
+     * in the subquad under its center.
+     */
+    private void addLoose(T node) {
+        if (bottom) {
+            nodeList.add(node);
+            if (nodeList.size() > maxNodes && depth < maxDepth) {
+                split();
+            }
+            return;
+        }
+        Rect bounds = node.getBounds();
+        Quad<T> subquad = subquads[subquadIndex(bounds)];
+        if (subquad.looseArea.contains(bounds)) {
+            subquad.addLoose(node);
+        } else {
+            nodeList.add(node);
+        }
+    }
+
+    /**
+     * Returns the index of the subquad under the center of the given bounds
+     */
+    private int subquadIndex(Rect bounds) {
+        int index = 0;
+        if (bounds.x + bounds.width/2 >= area.x + area.width/2) {
+            index += 2; // East
+        }
+        if (bounds.y + bounds.height/2 >= area.y + area.height/2) {
+            index += 1; // North
+        }
+        return index;
+    }
     
     /**
      * Fills the given FastArList with the items from the given area of this quad
      * @param area The area to look in
      * @param target The streamed container to add roads to
      */
-    protected void getIn(Rect area, StreamedContainer target) {
-        for (Rect r: edgeCases.keySet()) { // Add edge cases
-           // System.out.println("Edge case at "+r+" collides with "+area);
-            for (T node : edgeCases.get(r)) {
+    protected void getIn(Rect area, StreamedContainer<? super T> target) {
+        if (loose) {
+            getInLoose(area, target, area.contains(looseArea));
+            return;
+        }
+        for (FastArList<T> list : edgeCases) { // Add edge cases
+            for (T node : list) {
                 if (node.collidesWith(area)) {
                     target.add(node);
                 }
@@ -94,12 +160,34 @@ public class Quad <T extends QuadNode> {
                 }
             }
         } else {
-            for (Quad subquad : subquads) {
+            for (Quad<T> subquad : subquads) {
                 if (subquad.area.collidesWith(area)) {
                     subquad.getIn(area, target);
                 }
             }
         }
+    }
+
+    /**
+     * Fills the target with the items of a loose quad colliding with the area
+     * @param all Whether the loose area of the quad is inside the area, so
+     * every item in it is wanted
+     */
+    private void getInLoose(Rect area, StreamedContainer<? super T> target, boolean all) {
+        for (T node : nodeList) {
+            if (all || node.collidesWith(area)) {
+                target.add(node);
+            }
+        }
+        if (!bottom) {
+            for (Quad<T> subquad : subquads) {
+                if (all) {
+                    subquad.getInLoose(area, target, true);
+                } else if (subquad.looseArea.collidesWith(area)) {
+                    subquad.getInLoose(area, target, area.contains(subquad.looseArea));
+                }
+            }
+        }
     }    
 
     /**
@@ -115,17 +203,30 @@ public class Quad <T extends QuadNode> {
             Rect seRect = new Rect(area.x + 0.5f * area.width, area.y, hw, hh);
             Rect neRect = new Rect(area.x + 0.5f * area.width, area.y + hh, hw, hh);
             
-            Quad sw = new Quad(swRect, maxNodes, maxDepth, (short)(this.depth+1));
-            Quad nw = new Quad(nwRect, maxNodes, maxDepth, (short)(this.depth+1));
-            Quad se = new Quad(seRect, maxNodes, maxDepth, (short)(this.depth+1));
-            Quad ne = new Quad(neRect, maxNodes, maxDepth, (short)(this.depth+1));
+            short d = (short)(this.depth+1);
+            Quad<T> sw = new Quad<>(swRect, maxNodes, maxDepth, d, loose);
+            Quad<T> nw = new Quad<>(nwRect, maxNodes, maxDepth, d, loose);
+            Quad<T> se = new Quad<>(seRect, maxNodes, maxDepth, d, loose);
+            Quad<T> ne = new Quad<>(neRect, maxNodes, maxDepth, d, loose);
             
-            subquads = new Quad[] {sw, nw, se, ne};
+            subquads = newQuads(4);
+            subquads[0] = sw;
+            subquads[1] = nw;
+            subquads[2] = se;
+            subquads[3] = ne;
             bottom = false;
 
+            FastArList<T> nodes = nodeList;
+            if (loose) { // Keep what doesn't fit in a subquad
+                nodeList = new FastArList<>();
+                for (T node : nodes) {
+                    addLoose(node);
+                }
+                return;
+            }
             // nu skal vi indele nodes fra vores Quad til at være i de mindre subquads
-            for (T node : nodeList) {
-                for (Quad subquad : subquads) {
+            for (T node : nodes) {
+                for (Quad<T> subquad : subquads) {
                     if (node.collidesWith(subquad.area)) {
                         subquad.add(node);
                         //continue;
@@ -136,8 +237,29 @@ public class Quad <T extends QuadNode> {
         }
     }
     
+    /**
+     * Returns an array of new empty lists. An array of a generic type can't
+     * be created, but a raw one only ever holding lists of T is safe.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> FastArList<T>[] newLists(int count) {
+        FastArList<T>[] lists = (FastArList<T>[])new FastArList<?>[count];
+        for (int i = 0; i < count; i++) {
+            lists[i] = new FastArList<>();
+        }
+        return lists;
+    }
+
+    /**
+     * Returns an empty array for subquads (see newLists)
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends QuadNode> Quad<T>[] newQuads(int count) {
+        return (Quad<T>[])new Quad<?>[count];
+    }
+
     @Override
     public String toString() {
-        return "Quad( Depth: "+depth+" Bottom: "+bottom+" @ "+area+")";
+        return "Quad( Depth: "+depth+" Bottom: "+bottom+(loose? " Loose": "")+" @ "+area+")";
     }
 }
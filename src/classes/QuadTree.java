@@ -1,5 +1,7 @@
 package classes;
 
+import interfaces.QuadNode;
+import interfaces.SpatialIndex;
 import interfaces.StreamedContainer;
 
 /**
@@ -8,20 +10,37 @@ import interfaces.StreamedContainer;
  * @author Alekxander
  * @author Jakob
  */
-public class QuadTree extends Quad {
+public class QuadTree extends Quad<QuadNode> implements SpatialIndex<QuadNode> {
     public QuadTree(Rect area, short maxNodes, short maxDepth) {
         super(area, maxNodes, maxDepth, (short)1);
     }
     
+    /**
+     * Constructor for the QuadTree class
+     * @param area The area of the tree
+     * @param maxNodes The number of nodes a quad can hold before it splits
+     * @param maxDepth The max depth
+     * @param loose Whether it should be a loose quad tree (see Quad)
+     */
+    public QuadTree(Rect area, short maxNodes, short maxDepth, boolean loose) {
+        super(area, maxNodes, maxDepth, (short)1, loose);
+    }
+    
     /**
      * Fills the target streamed container with roads inside the given area
      * @param area The area to look in
      * @param target The target to notify
      */
-    public void getIn(Rect area, StreamedContainer target) {
+    @Override
+    public void getIn(Rect area, StreamedContainer<? super QuadNode> target) {
         long t1 = System.nanoTime();
         super.getIn(area, target);
         double s = (System.nanoTime()-t1)/1e9;
         //System.out.println("'getIn' returned "+result.size()+" roads from the QuadTree in "+s+"sec");
     }
+
+    @Override
+    public void build() {
+        // Roads are placed in the tree as they are added
+    }
 }
@@ -0,0 +1,248 @@
+package classes;
+
+import interfaces.IRoad;
+import interfaces.SpatialIndex;
+import interfaces.StreamedContainer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The RTree class is a spatial index for a set of roads that doesn't change
+ * once it is loaded. The roads are collected by add, and build then packs
+ * them bottom-up with Sort-Tile-Recursive: the roads are sorted into vertical
+ * slices by the x-coordinate of their centers, each slice is sorted by y, and
+ * runs of 'capacity' roads become the leaves. The leaves are packed the same
+ * way into the level above, and so on until there is a single root.
+ * The tree is kept in flat arrays; node k has the children childStart[k]
+ * until childEnd[k], which are roads if k is a leaf (k &lt; leafCount) and
+ * nodes otherwise.
+ * @author agent
+ * @version 18-Oct-2026
+ * @param <T> The type of road in the tree
+ */
+public class RTree<T extends IRoad> implements SpatialIndex<T> {
+    public static final int defaultCapacity = 16;
+
+    private final int capacity; // The number of children per node
+    private FastArList<T> pending = new FastArList<>(); // Used until built
+    private ArrayList<T> items; // The roads, in leaf order
+    private float[] nodeBoxes; // The bounds of each node (minX, minY, maxX, maxY)
+    private int[] childStart;
+    private int[] childEnd;
+    private int leafCount;
+    private int root = -1;
+
+    public RTree() {
+        this(defaultCapacity);
+    }
+
+    /**
+     * Constructor for the RTree class
+     * @param capacity The number of children per node
+     */
+    public RTree(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("A node needs room for at least two children");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void add(T node) {
+        if (pending == null) {
+            throw new UnsupportedOperationException("The tree has already been built");
+        }
+        pending.add(node);
+    }
+
+    @Override
+    public void build() {
+        if (pending == null) {
+            return;
+        }
+        int n = pending.size();
+        ArrayList<T> added = new ArrayList<>(n);
+        for (T node : pending) {
+            added.add(node);
+        }
+        pending = null;
+        float[] boxes = new float[n * 4];
+        for (int i = 0; i < n; i++) {
+            Rect b = added.get(i).getBounds();
+            boxes[i * 4] = b.x;
+            boxes[i * 4 + 1] = b.y;
+            boxes[i * 4 + 2] = b.right();
+            boxes[i * 4 + 3] = b.top();
+        }
+        int[] order = tile(boxes, 0, n);
+        items = new ArrayList<>(n);
+        float[] itemBoxes = new float[n * 4];
+        for (int i = 0; i < n; i++) {
+            items.add(added.get(order[i]));
+            System.arraycopy(boxes, order[i] * 4, itemBoxes, i * 4, 4);
+        }
+        if (n == 0) {
+            return;
+        }
+
+        int total = 0; // The number of nodes on all levels
+        for (int count = n; count > 1 || total == 0; ) {
+            count = (count + capacity - 1) / capacity;
+            total += count;
+        }
+        nodeBoxes = new float[total * 4];
+        childStart = new int[total];
+        childEnd = new int[total];
+
+        int nodes = pack(0, n, itemBoxes, 0);
+        leafCount = nodes;
+        int levelStart = 0;
+        while (nodes - levelStart > 1) {
+            // Tile the nodes of the level before packing them into the next
+            int count = nodes - levelStart;
+            order = tile(nodeBoxes, levelStart, count);
+            float[] b = Arrays.copyOfRange(nodeBoxes, levelStart * 4, nodes * 4);
+            int[] s = Arrays.copyOfRange(childStart, levelStart, nodes);
+            int[] e = Arrays.copyOfRange(childEnd, levelStart, nodes);
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(b, order[i] * 4, nodeBoxes, (levelStart + i) * 4, 4);
+                childStart[levelStart + i] = s[order[i]];
+                childEnd[levelStart + i] = e[order[i]];
+            }
+            int next = pack(levelStart, nodes, nodeBoxes, nodes);
+            levelStart = nodes;
+            nodes = next;
+        }
+        root = nodes - 1;
+    }
+
+    /**
+     * Makes a node of each run of 'capacity' children
+     * @return The number of nodes after the new ones
+     */
+    private int pack(int start, int end, float[] boxes, int node) {
+        for (int i = start; i < end; i += capacity, node++) {
+            int last = Math.min(i + capacity, end);
+            childStart[node] = i;
+            childEnd[node] = last;
+            float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            for (int c = i; c < last; c++) {
+                minX = Math.min(minX, boxes[c * 4]);
+                minY = Math.min(minY, boxes[c * 4 + 1]);
+                maxX = Math.max(maxX, boxes[c * 4 + 2]);
+                maxY = Math.max(maxY, boxes[c * 4 + 3]);
+            }
+            nodeBoxes[node * 4] = minX;
+            nodeBoxes[node * 4 + 1] = minY;
+            nodeBoxes[node * 4 + 2] = maxX;
+            nodeBoxes[node * 4 + 3] = maxY;
+        }
+        return node;
+    }
+
+    /**
+     * Orders 'count' boxes (from 'first') into slices by x and then by y
+     * within each slice, so that runs of 'capacity' are close together
+     * @return The order of the boxes, relative to first
+     */
+    private int[] tile(float[] boxes, int first, int count) {
+        int pages = (count + capacity - 1) / capacity;
+        int sliceSize = (int)Math.ceil(Math.sqrt(pages)) * capacity;
+        // The index is kept in the low bits, so sorting the keys sorts it along
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int b = (first + i) * 4;
+            keys[i] = ((long)sortable(boxes[b] + boxes[b + 2]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count; i++) {
+            int index = (int)keys[i];
+            int b = (first + index) * 4;
+            keys[i] = ((long)sortable(boxes[b + 1] + boxes[b + 3]) << 32) | index;
+        }
+        for (int s = 0; s < count; s += sliceSize) {
+            Arrays.sort(keys, s, Math.min(s + sliceSize, count));
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int)keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Maps the bits of a float to an int with the same order
+     */
+    private static int sortable(float f) {
+        int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    /**
+     * Fills the target streamed container with the roads colliding with the
+     * given area
+     * @param area The area to look in
+     * @param target The target to notify
+     */
+    @Override
+    public void getIn(Rect area, StreamedContainer<? super T> target) {
+        if (pending != null) {
+            throw new IllegalStateException("The tree must be built before it is searched");
+        }
+        if (root != -1 && overlaps(nodeBoxes, root, area)) {
+            getIn(root, area, target, inside(nodeBoxes, root, area));
+        }
+    }
+
+    /**
+     * Adds the roads of a node colliding with the area to the target
+     * @param all Whether the node is inside the area, so all of them do
+     */
+    private void getIn(int node, Rect area, StreamedContainer<? super T> target, boolean all) {
+        int end = childEnd[node];
+        if (node < leafCount) {
+            for (int i = childStart[node]; i < end; i++) {
+                T item = items.get(i);
+                if (all || item.collidesWith(area)) {
+                    target.add(item);
+                }
+            }
+        } else {
+            for (int c = childStart[node]; c < end; c++) {
+                if (all) {
+                    getIn(c, area, target, true);
+                } else if (overlaps(nodeBoxes, c, area)) {
+                    getIn(c, area, target, inside(nodeBoxes, c, area));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether a box collides with the area (as in Rect.collidesWith)
+     */
+    private static boolean overlaps(float[] boxes, int i, Rect area) {
+        int b = i * 4;
+        return boxes[b + 2] > area.x && boxes[b] < area.x + area.width
+                && boxes[b + 3] > area.y && boxes[b + 1] < area.y + area.height;
+    }
+
+    /**
+     * Returns whether a box lies strictly inside the area, so that everything
+     * in it collides with the area
+     */
+    private static boolean inside(float[] boxes, int i, Rect area) {
+        int b = i * 4;
+        return boxes[b] > area.x && boxes[b + 2] < area.x + area.width
+                && boxes[b + 1] > area.y && boxes[b + 3] < area.y + area.height;
+    }
+
+    /**
+     * Returns the number of roads in the tree
+     * @return the number of roads in the tree
+     */
+    public int size() {
+        return (pending != null)? pending.size(): items.size();
+    }
+}
@@ -40,6 +40,14 @@ public class Rect {
         return y+height;
     }
     
+    /**
+     * Returns this rect, so that rects can be used as nodes of a QuadTree
+     * @return this rect
+     */
+    public Rect getBounds() {
+        return this;
+    }
+    
     /**
      * Returns whether this rectangle collides with another rectangle
      * @param other The other rectangle
@@ -33,6 +33,23 @@ public class RenderPanel extends JPanel {
         addOption("Prime routes", RoadType.PrimeRoute);
         addOption("Paths", RoadType.Path);
         addOption("Ferry routes", RoadType.Ferry);
+        addTilesOption();
+    }
+    
+    /**
+     * Adds the option of painting the map from cached tiles
+     */
+    private void addTilesOption() {
+        final JCheckBox option = new JCheckBox("Cached tiles");
+        option.setSelected(controller.isTiled());
+        option.addItemListener(new ItemListener() {
+            @Override
+            public void itemStateChanged(ItemEvent e) {
+                controller.setTiled(e.getStateChange() == ItemEvent.SELECTED);
+            }
+        });
+        option.setFocusable(false);
+        add(option);
     }
     
     private void addOption(String description, RoadType... types) {
@@ -62,7 +79,7 @@ public class RenderPanel extends JPanel {
          */
         private void refresh() {
             //System.out.println("Changing the color from the Render panel");
-            controller.redraw();
+            controller.redrawTypes(types);
         }
         
         private void onChecked(Object source) {
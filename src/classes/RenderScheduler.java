@@ -0,0 +1,381 @@
+package classes;
+
+import classes.Viewport.Projection;
+import enums.RoadType;
+import interfaces.IProgressBar;
+import interfaces.IRoad;
+import interfaces.StreamedContainer;
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+/**
+ * The RenderScheduler class draws whole frames of the map for a view in the
+ * background, so the event thread never waits for the roads to be found or
+ * drawn. Every request makes the frames requested before it stale; a stale
+ * frame stops at the next road it would draw, and a finished frame is only
+ * handed to the view (on the event thread) if it is still the newest one.
+ *
+ * Each type of road is drawn into an image of its own on a pool of threads,
+ * and the layers are then composited in the order of the model's priorities.
+ * The layers of the latest frame are kept, so a type can be switched on or
+ * off without looking up any roads.
+ *
+ * Frames are drawn coarse first (see Model.isCoarse): if a frame isn't done
+ * within its time budget, the coarse roads are shown while the rest are
+ * drawn, so the view is never left waiting on the many small roads.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class RenderScheduler {
+
+    /**
+     * Thrown inside a frame to stop drawing it once it is stale
+     */
+    private static class StaleFrameException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public StaleFrameException() {
+            super(null, null, false, false); // No stack trace, it's never shown
+        }
+    }
+
+    /**
+     * A layer of a frame being drawn, which draws the roads streamed to it as
+     * long as it is the newest frame
+     */
+    private class Frame implements StreamedContainer<IRoad> {
+        private final int id;
+        private final Projection projection;
+        private final Dimension size;
+        private final RoadRenderer renderer;
+        private final BufferedImage image;
+        private Graphics2D graphics;
+
+        public Frame(int id, Projection projection, Dimension size,
+                RoadRenderer renderer, BufferedImage image) {
+            this.id = id;
+            this.projection = projection;
+            this.size = size;
+            this.renderer = renderer;
+            this.image = image;
+        }
+
+        @Override
+        public void startStream() {
+            graphics = image.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            renderer.setTarget(graphics, projection, size.height);
+        }
+
+        @Override
+        public void startStream(IProgressBar bar) {
+            startStream();
+        }
+
+        @Override
+        public void add(IRoad obj) {
+            if (id != latest.get()) {
+                throw new StaleFrameException();
+            }
+            renderer.add(obj);
+        }
+
+        @Override
+        public void endStream() {
+            renderer.endStream();
+            graphics.dispose();
+        }
+
+        /**
+         * Stops the drawing of a stale frame, without drawing what is left
+         */
+        public void abandon() {
+            if (graphics != null) { // It may go stale before it is started
+                graphics.dispose();
+            }
+        }
+    }
+
+    /**
+     * The drawing of a single type of road into a transparent layer
+     */
+    private class Layer implements Callable<BufferedImage> {
+        private final int id;
+        private final RoadType type;
+        private final Projection projection;
+        private final Dimension size;
+        private final BufferedImage spare; // An old layer to draw on, or null (see transparent)
+
+        public Layer(int id, RoadType type, Projection projection, Dimension size,
+                BufferedImage spare) {
+            this.id = id;
+            this.type = type;
+            this.projection = projection;
+            this.size = size;
+            this.spare = spare;
+        }
+
+        @Override
+        public BufferedImage call() {
+            BufferedImage image = transparent(spare, size);
+            Frame frame = new Frame(id, projection, size, renderers.get(), image);
+            try {
+                model.getRoads(type, frame, projection);
+            } catch (StaleFrameException ex) {
+                frame.abandon();
+                throw ex;
+            }
+            return image;
+        }
+    }
+
+    private final Model model;
+    private final OptimizedView view;
+    private final ExecutorService worker; // Composites the frames
+    private final AtomicInteger latest = new AtomicInteger(0); // The newest frame
+    private final ExecutorService layerWorkers;
+    private final ThreadLocal<RoadRenderer> renderers; // For the layer workers
+    // The layers of the newest frame, only touched by the worker
+    private HashMap<RoadType, BufferedImage> layers = null;
+    private Projection layersProjection = null;
+    private HashMap<RoadType, BufferedImage> spares = new HashMap<>(); // The layers before those
+    private volatile long budget = 50; // The milliseconds before the coarse roads are shown
+
+    /**
+     * Constructor for the RenderScheduler class
+     * @param model The model to draw the roads of
+     * @param view The view to show the frames in
+     */
+    public RenderScheduler(Model model, final OptimizedView view) {
+        this.model = model;
+        this.view = view;
+        worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Renderer");
+                thread.setDaemon(true); // Don't keep the program alive
+                return thread;
+            }
+        });
+        int threads = Math.min(RoadType.values().length,
+                Runtime.getRuntime().availableProcessors());
+        layerWorkers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Layers-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        renderers = new ThreadLocal<RoadRenderer>() {
+            @Override
+            protected RoadRenderer initialValue() {
+                return new RoadRenderer(view.ins);
+            }
+        };
+    }
+
+    /**
+     * Requests a frame of the given projection at the current size of the
+     * view, making every earlier frame stale
+     * @param p The projection to draw
+     */
+    public void request(final Projection p) {
+        final int id = latest.incrementAndGet();
+        final Dimension size = view.getSize();
+        if (size.width == 0 || size.height == 0) {
+            return;
+        }
+        final long deadline = System.nanoTime() + budget * 1000000;
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (id != latest.get()) {
+                    return; // Already stale, so don't even start it
+                }
+                BufferedImage image = drawLayers(id, p, size, deadline);
+                if (image != null) { // Not stale
+                    show(id, image, p);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets how long a frame may take before its coarse roads are shown on
+     * their own, while the rest are drawn
+     * @param millis The time budget of a frame in milliseconds
+     */
+    public void setBudget(long millis) {
+        budget = millis;
+    }
+
+    /**
+     * Returns a cleared transparent image of the given size, which is the
+     * spare image if it has that size
+     */
+    private static BufferedImage transparent(BufferedImage spare, Dimension size) {
+        if (spare == null || spare.getWidth() != size.width || spare.getHeight() != size.height) {
+            return new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        Graphics2D g2d = spare.createGraphics(); // Far cheaper than a new image
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, size.width, size.height);
+        g2d.dispose();
+        return spare;
+    }
+
+    /**
+     * Requests the newest frame to be composited again from its layers, eg.
+     * after a type of road was switched on or off. If there are no layers of
+     * the given projection, a new frame is drawn instead.
+     * @param p The projection of the view
+     */
+    public void recomposite(final Projection p) {
+        final int id = latest.incrementAndGet();
+        final Dimension size = view.getSize();
+        if (size.width == 0 || size.height == 0) {
+            return;
+        }
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (id != latest.get()) {
+                    return;
+                }
+                BufferedImage image;
+                if (layers != null && sameView(layersProjection, p, size)) {
+                    image = composite(layers, size);
+                } else {
+                    image = drawLayers(id, p, size, Long.MAX_VALUE);
+                    if (image == null) {
+                        return;
+                    }
+                }
+                show(id, image, p);
+            }
+        });
+    }
+
+    /**
+     * Hands a finished frame to the view, if it is still the newest
+     */
+    private void show(final int id, final BufferedImage image, final Projection p) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                // Checked again here, as the view may have moved meanwhile
+                if (id == latest.get()) {
+                    view.showFrame(image, p);
+                }
+            }
+        });
+    }
+
+    /**
+     * Draws the layers of a frame in parallel and composites them. Every
+     * type that can be seen at the zoom is drawn, even those left out of the
+     * priorities, so they can be switched on again by compositing alone.
+     * The coarse layers are started first, and shown on their own if the
+     * frame isn't done by the deadline.
+     * @return The composited frame, or null if it went stale
+     */
+    private BufferedImage drawLayers(int id, Projection p, Dimension size, long deadline) {
+        ArrayList<RoadType> types = new ArrayList<>();
+        ArrayList<Future<BufferedImage>> results = new ArrayList<>();
+        int coarseCount = 0;
+        for (boolean coarse : new boolean[] {true, false}) {
+            for (RoadType type : RoadType.values()) {
+                if (Model.isCoarse(type) != coarse || !model.isVisible(type, p)) {
+                    continue;
+                }
+                types.add(type);
+                results.add(layerWorkers.submit(new Layer(id, type, p, size, spares.remove(type))));
+                if (coarse) {
+                    coarseCount++;
+                }
+            }
+        }
+        HashMap<RoadType, BufferedImage> drawn = new HashMap<>();
+        boolean checkpoint = (deadline != Long.MAX_VALUE);
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                if (i < coarseCount || !checkpoint) {
+                    drawn.put(types.get(i), results.get(i).get());
+                    continue;
+                }
+                try {
+                    long left = Math.max(0, deadline - System.nanoTime());
+                    drawn.put(types.get(i), results.get(i).get(left, TimeUnit.NANOSECONDS));
+                } catch (TimeoutException ex) { // Show what is done while waiting
+                    show(id, composite(drawn, size), p);
+                    checkpoint = false;
+                    i--;
+                }
+            }
+        } catch (InterruptedException ex) {
+            return null; // Shutting down
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof StaleFrameException) {
+                return null;
+            }
+            throw new RuntimeException("A layer could not be drawn", ex.getCause());
+        }
+        if (layers != null) { // Still needed for recompositing, so the older set is reused
+            spares = layers;
+        }
+        layers = drawn;
+        layersProjection = p;
+        return composite(drawn, size);
+    }
+
+    /**
+     * Composites layers in the order of the model's priorities
+     */
+    private BufferedImage composite(HashMap<RoadType, BufferedImage> layers, Dimension size) {
+        BufferedImage image = view.createImage(size, true);
+        Graphics2D g2d = image.createGraphics();
+        for (RoadType type : model.priorities.toArray(new RoadType[0])) {
+            BufferedImage layer = layers.get(type);
+            if (layer != null) {
+                g2d.drawImage(layer, 0, 0, null);
+            }
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    /**
+     * Returns whether two projections show the same part of the map at the
+     * given size
+     */
+    private static boolean sameView(Projection a, Projection b, Dimension size) {
+        return a.source.x == b.source.x && a.source.y == b.source.y
+                && a.source.width == b.source.width && a.source.height == b.source.height
+                && a.target.width == size.width && a.target.height == size.height;
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+        layerWorkers.shutdownNow();
+    }
+}
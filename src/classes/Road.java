@@ -2,7 +2,7 @@ package classes;
 
 import classes.Viewport.Projection;
 import enums.RoadType;
-import interfaces.QuadNode;
+import interfaces.IRoad;
 import java.util.Iterator;
 
 /**
@@ -10,7 +10,7 @@ import java.util.Iterator;
  * @author Jakob Lautrup Nysom (jaln@itu.dk)
  * @version 13-May-2014
  */
-public class Road implements QuadNode, Iterable<Road.Edge> {
+public class Road implements IRoad, Iterable<Road.Edge> {
 
     @Override
     public boolean collidesWith(Rect area) {
@@ -18,10 +18,12 @@ public class Road implements QuadNode, Iterable<Road.Edge> {
     }
     public static class Node {
         public final long id;
+        public final int index; // Dense index of the node, used by the graph
         public final float x;
         public final float y;
-        public Node(long id, float x, float y) {
+        public Node(long id, int index, float x, float y) {
             this.id = id;
+            this.index = index;
             this.x = x;
             this.y = y;
         }
@@ -54,7 +56,7 @@ public class Road implements QuadNode, Iterable<Road.Edge> {
         public Edge(Node p1, Node p2) {
             this.p1 = p1;
             this.p2 = p2; // 300m / (70km/h * 16.66)
-            this.driveTime = (float)(length() / (Road.this.speedLimit * speedConv)); // m / (km/h / h/min * m/km)
+            this.driveTime = driveTime(length(), Road.this.speedLimit);
         }
         public Road parent() {
             return Road.this;
@@ -64,9 +66,20 @@ public class Road implements QuadNode, Iterable<Road.Edge> {
                     Math.abs(p2.x - p1.x), Math.abs(p2.y - p1.y));
         }
         public double length() {
-            return Math.sqrt(Math.pow(p2.x - p1.x, 2)+Math.pow(p2.y - p1.y, 2));
+            float dx = p2.x - p1.x;
+            float dy = p2.y - p1.y;
+            return Math.sqrt(dx * dx + dy * dy);
         }
     }
+    /**
+     * Returns the time it takes to drive the given length at the given speed
+     * @param length The length in meters
+     * @param speedLimit The speed in km/h
+     * @return The drive time in minutes
+     */
+    static float driveTime(double length, int speedLimit) {
+        return (float)(length / (speedLimit * speedConv)); // m / (km/h / h/min * m/km)
+    }
     public final String     name;
     public final RoadType   type; // Using int representation
     public final short      zipCode;
@@ -75,6 +88,7 @@ public class Road implements QuadNode, Iterable<Road.Edge> {
     public final Node[]     nodes;
     public final float[]    drivetimes;
     public final Rect       bounds;
+    private byte[]          detailLevels; // Computed when first needed
     /**
      * Constructor for the Road class
      * @param name The name of the road
@@ -98,6 +112,126 @@ public class Road implements QuadNode, Iterable<Road.Edge> {
         this.bounds = bounds;
     }
     
+    /**
+     * Returns the edge between the node at the given index and the next one
+     * @param index The index of the edge (0 to nodes.length-2)
+     * @return The edge at the index
+     */
+    public Edge getEdge(int index) {
+        if (drivetimes.length > 0) {
+            return new Edge(nodes[index], nodes[index+1], drivetimes[index]);
+        } else {
+            return new Edge(nodes[index], nodes[index+1]);
+        }
+    }
+
+    @Override
+    public RoadType getType() {
+        return type;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public short getZipCode() {
+        return zipCode;
+    }
+
+    @Override
+    public short getSpeedLimit() {
+        return speedLimit;
+    }
+
+    @Override
+    public boolean isOneway() {
+        return oneway;
+    }
+
+    @Override
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    @Override
+    public int segmentCount() {
+        return nodes.length - 1;
+    }
+
+    @Override
+    public float getX(int i) {
+        return nodes[i].x;
+    }
+
+    @Override
+    public float getY(int i) {
+        return nodes[i].y;
+    }
+
+    @Override
+    public void getCoordinates(float[] xs, float[] ys) {
+        for (int i = 0; i < nodes.length; i++) {
+            xs[i] = nodes[i].x;
+            ys[i] = nodes[i].y;
+        }
+    }
+
+    @Override
+    public void getDetailLevels(byte[] levels, int offset) {
+        byte[] computed = detailLevels();
+        System.arraycopy(computed, 0, levels, offset, computed.length);
+    }
+
+    /**
+     * Returns the detail levels of the vertices, computing them the first time
+     * @return the detail level of each vertex (see DetailLevels)
+     */
+    byte[] detailLevels() {
+        byte[] computed = detailLevels;
+        if (computed == null) {
+            int n = nodes.length;
+            float[] xs = new float[n];
+            float[] ys = new float[n];
+            getCoordinates(xs, ys);
+            computed = new byte[n];
+            DetailLevels.compute(xs, ys, n, computed);
+            detailLevels = computed;
+        }
+        return computed;
+    }
+
+    @Override
+    public int getNodeIndex(int i) {
+        return nodes[i].index;
+    }
+
+    @Override
+    public Node getNode(int i) {
+        return nodes[i];
+    }
+
+    @Override
+    public float getDriveTime(int segment) {
+        if (drivetimes.length > 0) {
+            return drivetimes[segment];
+        }
+        float dx = nodes[segment + 1].x - nodes[segment].x;
+        float dy = nodes[segment + 1].y - nodes[segment].y;
+        return driveTime(Math.sqrt(dx * dx + dy * dy), speedLimit);
+    }
+
+    @Override
+    public Road toRoad() {
+        return this;
+    }
+
     private class EdgeIter implements Iterator<Edge> {
         int index;
         Edge nextEdge;
@@ -111,13 +245,7 @@ public class Road implements QuadNode, Iterable<Road.Edge> {
 
         @Override
         public Edge next() {
-            if (Road.this.drivetimes.length > 0) {
-                nextEdge = new Edge(Road.this.nodes[index], Road.this.nodes[index+1], 
-                Road.this.drivetimes[index]);
-            } else {
-                nextEdge = new Edge(Road.this.nodes[index], Road.this.nodes[index+1]);
-            }
-            
+            nextEdge = getEdge(index);
             index++;
             return nextEdge;
         }
@@ -0,0 +1,350 @@
+package classes;
+
+import classes.Viewport.Projection;
+import enums.RoadType;
+import interfaces.IProgressBar;
+import interfaces.IRoad;
+import interfaces.StreamedContainer;
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+
+/**
+ * The RoadRenderer class draws the roads streamed to it onto a graphics
+ * object, as seen through a projection. It holds the scratch state of the
+ * drawing, so each thread that draws roads needs a renderer of its own.
+ *
+ * By default the roads are drawn in runs: as the model streams the roads type
+ * by type, the color and stroke are only set when the type changes, rather
+ * than for every road. The segments are still drawn as separate lines, since
+ * Java2D draws a thin antialiased line much faster than it strokes a path of
+ * many segments (see Benchmarks.rendering). The projection is read into plain
+ * fields once per target, the vertices of a road are mapped in one loop, and
+ * segments are culled against the target with Cohen-Sutherland outcodes, so
+ * that no segment outside it, and none within a single pixel, reaches Java2D
+ * (short segments are joined up with the next, so no part of a road is lost).
+ * Minor roads of about a pixel in all are left out.
+ * Segments reaching far beyond the target are clipped before being rounded.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class RoadRenderer implements StreamedContainer<IRoad> {
+    // Minor roads smaller than this on screen aren't drawn, in pixels (the
+    // coarse types are always drawn, so highways don't break up into gaps)
+    private static final float minRoadSize = 1.5f;
+    // How far beyond the target lines are still drawn, so their ends are whole
+    private static final float clipMargin = 2;
+    // How far beyond the target a line may reach before it is cut short. Cutting
+    // moves its end by up to half a pixel when rounded, so it is only done this
+    // far out, where it tilts the line by a negligible amount on screen.
+    private static final float guardMargin = 16384;
+    // The outcodes of Cohen-Sutherland
+    private static final int inside = 0, left = 1, right = 2, below = 4, above = 8;
+
+    private final RenderInstructions ins;
+    private final BasicStroke ferryStroke = new BasicStroke(1,
+            BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] {5,4}, 0);
+
+    private Graphics2D graphics;
+    private Projection projection;
+    private int height; // The height of the image being drawn on
+    private int detailLevel; // The level of detail to draw roads at (see DetailLevels)
+    private final SegmentCursor cursor = new SegmentCursor(); // For the road being drawn
+    private int[] xVals = new int[64]; // The mapped coordinates for drawPolyLine
+    private int[] yVals = new int[64];
+    private boolean batched = true;
+    private RoadType runType = null; // The type whose color and stroke are set
+    private Stroke baseStroke = null; // The stroke to restore after ferries
+    // The projection as x = targetX + (mapX - sourceX) * ppu and
+    // y = height - (targetY + (mapY - sourceY) * ppu), as in Road.Node.mappedX/Y
+    private float sourceX, sourceY, ppu, targetX, targetY;
+    private float clipLeft, clipTop, clipRight, clipBottom; // In pixels
+    private float guardLeft, guardTop, guardRight, guardBottom;
+    private float[] xPixels = new float[64]; // The mapped vertices of a road
+    private float[] yPixels = new float[64];
+    private float cx1, cy1, cx2, cy2; // The ends of the latest clipped segment
+
+    /**
+     * Constructor for the RoadRenderer class
+     * @param ins The instructions for coloring the roads
+     */
+    public RoadRenderer(RenderInstructions ins) {
+        this.ins = ins;
+    }
+
+    /**
+     * Sets whether the roads are drawn in runs of a type (the default) or
+     * each on their own
+     * @param batched Whether to draw the roads in runs
+     */
+    public void setBatched(boolean batched) {
+        endRun();
+        this.batched = batched;
+    }
+
+    /**
+     * Sets where and how the following roads are drawn
+     * @param graphics The graphics object to draw with
+     * @param projection The projection from the map to the image
+     * @param height The height of the image (as the y-axis is flipped)
+     */
+    public void setTarget(Graphics2D graphics, Projection projection, int height) {
+        this.graphics = graphics;
+        this.projection = projection;
+        this.height = height;
+        detailLevel = DetailLevels.levelFor(projection.ppu);
+        runType = null; // The new graphics has its own color and stroke
+        sourceX = projection.source.x;
+        sourceY = projection.source.y;
+        ppu = projection.ppu;
+        targetX = projection.target.x;
+        targetY = projection.target.y;
+        Rect t = projection.target;
+        clipLeft = t.x - clipMargin;
+        clipRight = t.x + t.width + clipMargin;
+        clipTop = height - (t.y + t.height) - clipMargin;
+        clipBottom = height - t.y + clipMargin;
+        guardLeft = clipLeft - guardMargin;
+        guardRight = clipRight + guardMargin;
+        guardTop = clipTop - guardMargin;
+        guardBottom = clipBottom + guardMargin;
+    }
+
+    @Override
+    public void startStream() {
+        detailLevel = DetailLevels.levelFor(projection.ppu);
+    }
+
+    @Override
+    public void startStream(IProgressBar bar) {
+        startStream();
+    }
+
+    @Override
+    public void add(IRoad obj) {
+        if (batched) {
+            addToRun(obj);
+        } else {
+            drawLines(obj);
+        }
+    }
+
+    @Override
+    public void endStream() {
+        endRun();
+    }
+
+    /**
+     * Draws a road with the color and stroke of the current run of roads,
+     * switching to those of its type first if it is of another type
+     * @param road The road to draw
+     */
+    private void addToRun(IRoad road) {
+        SegmentCursor seg = cursor.reset(road, detailLevel);
+        if (seg.extent() * ppu < minRoadSize && !Model.isCoarse(road.getType())) {
+            return; // It would be a dot at most
+        }
+        int n = seg.vertexCount();
+        if (n > xPixels.length) {
+            xPixels = new float[Math.max(n, xPixels.length * 2)];
+            yPixels = new float[xPixels.length];
+        }
+        float[] xs = xPixels;
+        float[] ys = yPixels;
+        // The map coordinates are offset first, as they are too large to scale
+        // as floats without losing the precision of a pixel
+        float sx = sourceX, sy = sourceY, scale = ppu, tx = targetX, ty = targetY;
+        int h = height;
+        for (int i = 0; i < n; i++) {
+            xs[i] = tx + (seg.x(i) - sx) * scale;
+            ys[i] = h - (ty + (seg.y(i) - sy) * scale);
+        }
+        int from = 0; // The vertex the next line starts at
+        int fromCode = outcode(xs[0], ys[0]);
+        for (int i = 1; i < n; i++) {
+            int code = outcode(xs[i], ys[i]);
+            if ((fromCode & code) != 0) { // Both ends beyond the same edge
+                from = i;
+                fromCode = code;
+                continue;
+            }
+            float fx = xs[from], fy = ys[from], ex = xs[i], ey = ys[i];
+            int guardFrom = outcode(fx, fy, guardLeft, guardTop, guardRight, guardBottom);
+            int guardTo = outcode(ex, ey, guardLeft, guardTop, guardRight, guardBottom);
+            if ((guardFrom | guardTo) != inside) { // Far off, so cut to the guard band
+                if (!clip(fx, fy, guardFrom, ex, ey, guardTo)) {
+                    from = i;
+                    fromCode = code;
+                    continue;
+                }
+                fx = cx1;
+                fy = cy1;
+                ex = cx2;
+                ey = cy2;
+            }
+            int x1 = Math.round(fx);
+            int y1 = Math.round(fy);
+            int x2 = Math.round(ex);
+            int y2 = Math.round(ey);
+            if (x1 == x2 && y1 == y2) {
+                continue; // Within the same pixel, so it goes with the next
+            }
+            if (road.getType() != runType) {
+                startRun(road.getType());
+            }
+            graphics.drawLine(x1, y1, x2, y2);
+            from = i;
+            fromCode = code;
+        }
+    }
+
+    /**
+     * Returns the Cohen-Sutherland outcode of a point in pixels, against the
+     * target
+     */
+    private int outcode(float x, float y) {
+        return outcode(x, y, clipLeft, clipTop, clipRight, clipBottom);
+    }
+
+    /**
+     * Returns the Cohen-Sutherland outcode of a point against a box
+     */
+    private static int outcode(float x, float y, float l, float t, float r, float b) {
+        int code = inside;
+        if (x < l) {
+            code |= left;
+        } else if (x > r) {
+            code |= right;
+        }
+        if (y < t) {
+            code |= above;
+        } else if (y > b) {
+            code |= below;
+        }
+        return code;
+    }
+
+    /**
+     * Clips a line to the guard band, putting the ends of what is left in cx1,
+     * cy1, cx2 and cy2
+     * @return Whether any of the line is left
+     */
+    private boolean clip(float x1, float y1, int code1, float x2, float y2, int code2) {
+        // Each end is moved to at most two edges, but rounding could go on
+        for (int step = 0; step < 5; step++) {
+            if ((code1 | code2) == inside) {
+                cx1 = x1;
+                cy1 = y1;
+                cx2 = x2;
+                cy2 = y2;
+                return true;
+            }
+            if ((code1 & code2) != 0) {
+                return false;
+            }
+            int code = (code1 != inside)? code1: code2; // An end outside
+            float x, y;
+            if ((code & above) != 0) {
+                x = x1 + (x2 - x1) * (guardTop - y1) / (y2 - y1);
+                y = guardTop;
+            } else if ((code & below) != 0) {
+                x = x1 + (x2 - x1) * (guardBottom - y1) / (y2 - y1);
+                y = guardBottom;
+            } else if ((code & right) != 0) {
+                y = y1 + (y2 - y1) * (guardRight - x1) / (x2 - x1);
+                x = guardRight;
+            } else {
+                y = y1 + (y2 - y1) * (guardLeft - x1) / (x2 - x1);
+                x = guardLeft;
+            }
+            if (code == code1) {
+                x1 = x;
+                y1 = y;
+                code1 = outcode(x1, y1, guardLeft, guardTop, guardRight, guardBottom);
+            } else {
+                x2 = x;
+                y2 = y;
+                code2 = outcode(x2, y2, guardLeft, guardTop, guardRight, guardBottom);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the color and stroke of a new run of roads of the given type
+     */
+    private void startRun(RoadType type) {
+        graphics.setColor(ins.getColor(type));
+        if (type == RoadType.Ferry) {
+            baseStroke = graphics.getStroke();
+            graphics.setStroke(ferryStroke);
+        } else if (runType == RoadType.Ferry) {
+            graphics.setStroke(baseStroke);
+        }
+        runType = type;
+    }
+
+    /**
+     * Ends the current run of roads, restoring the stroke of the graphics
+     */
+    private void endRun() {
+        if (runType == RoadType.Ferry) {
+            graphics.setStroke(baseStroke);
+        }
+        runType = null;
+    }
+
+    /**
+     * Draws all edges of a road as a poly line
+     * (This is a rather inefficient alternative to drawLines)
+     * @param road The road to draw
+     */
+    public void drawPolyLine(IRoad road) {
+        graphics.setColor(ins.getColor(road.getType()));
+        int h = height;
+        Projection p = projection;
+        SegmentCursor seg = cursor.reset(road, detailLevel);
+        int l = seg.vertexCount();
+        if (l > xVals.length) {
+            xVals = new int[Math.max(l, xVals.length * 2)];
+            yVals = new int[xVals.length];
+        }
+        for (int i = 0; i < l; i++) {
+            xVals[i] = Math.round(p.target.x + (seg.x(i) - p.source.x) * p.ppu);
+            yVals[i] = Math.round(h - (p.target.y + (seg.y(i) - p.source.y) * p.ppu));
+        }
+        graphics.drawPolyline(xVals, yVals, l);
+    }
+
+    /**
+     * Draws each edge of a road as a separate line
+     * @param road The road to draw
+     */
+    public void drawLines(IRoad road) {
+        Projection p = projection;
+        SegmentCursor seg = cursor.reset(road, detailLevel);
+        if (seg.extent() * p.ppu < minRoadSize && !Model.isCoarse(road.getType())) {
+            return; // It would be a dot at most
+        }
+        graphics.setColor(ins.getColor(road.getType()));
+        Graphics2D g2d = graphics;
+        int h = height;
+        if (road.getType() == RoadType.Ferry) {
+            g2d = (Graphics2D)graphics.create();
+            g2d.setStroke(ferryStroke);
+        }
+        int x1 = Math.round(p.target.x + (seg.x(0) - p.source.x) * p.ppu);
+        int y1 = Math.round(h - (p.target.y + (seg.y(0) - p.source.y) * p.ppu));
+        while (seg.next()) {
+            int x2 = Math.round(p.target.x + (seg.x2 - p.source.x) * p.ppu);
+            int y2 = Math.round(h - (p.target.y + (seg.y2 - p.source.y) * p.ppu));
+            //System.out.println("Drawing a line from ("+x1+", "+y1+") to ("+x2+", "+y2+")");
+            g2d.drawLine(x1, y1, x2, y2);
+            x1 = x2;
+            y1 = y2;
+        }
+        if (g2d != graphics) {
+            g2d.dispose();
+        }
+    }
+}
@@ -0,0 +1,653 @@
+package classes;
+
+import enums.RoadType;
+import interfaces.IRoad;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The RoadStore class keeps roads in columns of primitive arrays instead of
+ * as Road objects with arrays of Node objects: the coordinates, node indices
+ * and drive times of all vertices are in a few flat arrays, with an offset
+ * per road, and the type, zip code, speed limit and name of each road are
+ * small numbers. The roads are handed out as tiny Ref objects, which read
+ * from the columns, and a Road is only built when one is asked for (the most
+ * recently built roads are kept, since routes ask for the same roads often).
+ * The loader adds roads as RoadData, straight from the parsed text, so no
+ * Road or Node is built while loading: the store gives the nodes their
+ * indices itself, and its node ids are shared with the Graph. Drive times
+ * are only kept for roads that came with them; the rest are worked out from
+ * the lengths of the segments when asked for, as Road does.
+ *
+ * In quantized mode the coordinates are instead stored as fixed-point
+ * numbers relative to the corner of the map, each vertex as the difference
+ * from the previous one in a variable number of bytes (usually two per
+ * coordinate), and decoded when the road is read.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class RoadStore {
+
+    private static final RoadType[] types = RoadType.values();
+
+    private int roadCount = 0;
+    private int vertexCount = 0;
+
+    // The fixed-point coordinates of quantized mode (resolution 0 is floats)
+    private final float resolution; // Map units per fixed-point step
+    private final float originX;
+    private final float originY;
+
+    // By road
+    private int[] offsets = new int[1025]; // The first vertex of each road (and the end)
+    private byte[] typeOrdinals = new byte[1024];
+    private short[] zipCodes = new short[1024];
+    private short[] speedLimits = new short[1024];
+    private boolean[] oneway = new boolean[1024];
+    private int[] nameIndices = new int[1024];
+    private float[] bounds = new float[4 * 1024]; // x, y, width, height
+
+    // By vertex (floats mode)
+    private float[] xs;
+    private float[] ys;
+    // By road (quantized mode): the encoded coordinates of each road
+    private int[] geometryOffsets;
+    private byte[] geometry;
+    private int geometryLength = 0;
+
+    // By vertex
+    private int[] nodeIndices = new int[4096];
+    private byte[] detailLevels = new byte[4096]; // See DetailLevels
+
+    // The drive times of the roads that have them, by segment
+    private int[] timeOffsets = new int[1024]; // The first drive time of each road, or -1
+    private float[] driveTimes = new float[4096];
+    private int driveTimeCount = 0;
+
+    // The nodes, by node index
+    private long[] nodeIds = new long[4096];
+    private int nodeCount = 0;
+    private LongIntMap nodeIndex = new LongIntMap(4096); // Only needed while adding
+
+    private final ArrayList<String> names = new ArrayList<>();
+    private HashMap<String, Integer> nameIndex = new HashMap<>();
+
+    // The roads built most recently by toRoad, least recently used first out
+    private static final int builtCapacity = 256;
+    private final LinkedHashMap<Integer, Road> built = 
+            new LinkedHashMap<Integer, Road>(builtCapacity * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Road> eldest) {
+            return size() > builtCapacity;
+        }
+    };
+
+    /**
+     * The fields of a road as they are kept in the store, in plain arrays.
+     * The parser fills these in instead of building a Road with Node
+     * objects; the detail levels and bounds are worked out here, so that
+     * happens on the parsing threads.
+     */
+    public static class RoadData {
+        public final String name;
+        public final RoadType type;
+        public final short zipCode;
+        public final short speedLimit;
+        public final boolean oneway;
+        public final long[] ids; // The node id of each vertex
+        public final float[] xs;
+        public final float[] ys;
+        public final float[] driveTimes; // Of each segment, or empty
+        public final byte[] levels; // See DetailLevels
+        public final Rect bounds;
+
+        /**
+         * Constructor for the RoadData class
+         * @param name The name of the road
+         * @param type The type of the road
+         * @param zipCode The zip code of the road
+         * @param speedLimit The speed limit of the road
+         * @param oneway Whether the road is one-way
+         * @param ids The node id of each vertex
+         * @param xs The x-coordinate of each vertex
+         * @param ys The y-coordinate of each vertex
+         * @param driveTimes The drive time of each segment, or an empty
+         * array if they follow from the lengths and the speed limit
+         */
+        public RoadData(String name, RoadType type, short zipCode, short speedLimit, 
+                boolean oneway, long[] ids, float[] xs, float[] ys, float[] driveTimes) {
+            this.name = name;
+            this.type = type;
+            this.zipCode = zipCode;
+            this.speedLimit = speedLimit;
+            this.oneway = oneway;
+            this.ids = ids;
+            this.xs = xs;
+            this.ys = ys;
+            this.driveTimes = driveTimes;
+            int n = xs.length;
+            levels = new byte[n];
+            DetailLevels.compute(xs, ys, n, levels);
+            float minX = Float.MAX_VALUE;
+            float maxX = -Float.MAX_VALUE;
+            float minY = minX;
+            float maxY = maxX;
+            for (int i = 0; i < n; i++) {
+                minX = (xs[i] < minX)? xs[i]: minX;
+                maxX = (xs[i] > maxX)? xs[i]: maxX;
+                minY = (ys[i] < minY)? ys[i]: minY;
+                maxY = (ys[i] > maxY)? ys[i]: maxY;
+            }
+            bounds = new Rect(minX, minY, maxX - minX, maxY - minY);
+        }
+    }
+
+    /**
+     * Constructor for a RoadStore with float coordinates
+     */
+    public RoadStore() {
+        this(null, 0);
+    }
+
+    /**
+     * Constructor for a RoadStore with quantized coordinates
+     * @param origin The area of the map (its corner is the origin of the 
+     * fixed-point coordinates)
+     * @param resolution The size of a fixed-point step in map units (eg. 
+     * 0.1 meters), or 0 to store floats
+     */
+    public RoadStore(Rect origin, float resolution) {
+        this.resolution = resolution;
+        if (resolution > 0) {
+            originX = origin.x;
+            originY = origin.y;
+            geometryOffsets = new int[1025];
+            geometry = new byte[16384];
+        } else {
+            originX = 0;
+            originY = 0;
+            xs = new float[4096];
+            ys = new float[4096];
+        }
+    }
+
+    /**
+     * A road in the store
+     */
+    public class Ref implements IRoad {
+        public final int road;
+
+        private Ref(int road) {
+            this.road = road;
+        }
+
+        @Override
+        public boolean collidesWith(Rect area) {
+            int b = road * 4;
+            return bounds[b] + bounds[b + 2] > area.x && bounds[b] < area.right()
+                    && bounds[b + 1] + bounds[b + 3] > area.y && bounds[b + 1] < area.top();
+        }
+
+        @Override
+        public RoadType getType() {
+            return types[typeOrdinals[road]];
+        }
+
+        @Override
+        public String getName() {
+            return names.get(nameIndices[road]);
+        }
+
+        @Override
+        public short getZipCode() {
+            return zipCodes[road];
+        }
+
+        @Override
+        public short getSpeedLimit() {
+            return speedLimits[road];
+        }
+
+        @Override
+        public boolean isOneway() {
+            return oneway[road];
+        }
+
+        @Override
+        public Rect getBounds() {
+            int b = road * 4;
+            return new Rect(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+        }
+
+        @Override
+        public int nodeCount() {
+            return offsets[road + 1] - offsets[road];
+        }
+
+        @Override
+        public int segmentCount() {
+            return offsets[road + 1] - offsets[road] - 1;
+        }
+
+        @Override
+        public float getX(int i) {
+            if (resolution == 0) {
+                return xs[offsets[road] + i];
+            }
+            return decode(road, i, true);
+        }
+
+        @Override
+        public float getY(int i) {
+            if (resolution == 0) {
+                return ys[offsets[road] + i];
+            }
+            return decode(road, i, false);
+        }
+
+        @Override
+        public void getCoordinates(float[] x, float[] y) {
+            if (resolution == 0) {
+                int n = nodeCount();
+                System.arraycopy(xs, offsets[road], x, 0, n);
+                System.arraycopy(ys, offsets[road], y, 0, n);
+            } else {
+                decode(road, x, y);
+            }
+        }
+
+        @Override
+        public void getDetailLevels(byte[] levels, int offset) {
+            System.arraycopy(detailLevels, offsets[road], levels, offset, nodeCount());
+        }
+
+        @Override
+        public int getNodeIndex(int i) {
+            return nodeIndices[offsets[road] + i];
+        }
+
+        @Override
+        public Road.Node getNode(int i) {
+            int index = nodeIndices[offsets[road] + i];
+            return new Road.Node(nodeIds[index], index, getX(i), getY(i));
+        }
+
+        @Override
+        public float getDriveTime(int segment) {
+            if (timeOffsets[road] >= 0) {
+                return driveTimes[timeOffsets[road] + segment];
+            }
+            return Road.driveTime(segmentLength(road, segment), speedLimits[road]);
+        }
+
+        @Override
+        public Road toRoad() {
+            synchronized (built) {
+                Road cached = built.get(road);
+                if (cached == null) {
+                    cached = build();
+                    built.put(road, cached);
+                }
+                return cached;
+            }
+        }
+
+        private Road build() {
+            int n = nodeCount();
+            Road.Node[] nodes = new Road.Node[n];
+            float[] x = new float[n];
+            float[] y = new float[n];
+            getCoordinates(x, y);
+            for (int i = 0; i < n; i++) {
+                int index = nodeIndices[offsets[road] + i];
+                nodes[i] = new Road.Node(nodeIds[index], index, x[i], y[i]);
+            }
+            float[] times = new float[0]; // Worked out by the road, as here
+            if (timeOffsets[road] >= 0) {
+                times = Arrays.copyOfRange(driveTimes, timeOffsets[road], timeOffsets[road] + n - 1);
+            }
+            return new Road(getName(), getType(), getZipCode(), getSpeedLimit(),
+                    isOneway(), nodes, times, getBounds());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Ref && ((Ref)obj).road == road;
+        }
+
+        @Override
+        public int hashCode() {
+            return road;
+        }
+
+        @Override
+        public String toString() {
+            return "Road("+getName()+", "+getType()+", "+nodeCount()+" nodes)";
+        }
+    }
+
+    /**
+     * Copies a road into the store
+     * @param road The road
+     * @return The stored road
+     */
+    public Ref add(Road road) {
+        int n = road.nodes.length;
+        long[] ids = new long[n];
+        float[] xs = new float[n];
+        float[] ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = road.nodes[i].id;
+        }
+        road.getCoordinates(xs, ys);
+        return add(new RoadData(road.name, road.type, road.zipCode, road.speedLimit,
+                road.oneway, ids, xs, ys, road.drivetimes));
+    }
+
+    /**
+     * Adds a parsed road to the store
+     * @param road The fields of the road
+     * @return The stored road
+     */
+    public Ref add(RoadData road) {
+        int r = roadCount;
+        if (r + 1 == offsets.length) {
+            int size = offsets.length * 2;
+            offsets = Arrays.copyOf(offsets, size);
+            typeOrdinals = Arrays.copyOf(typeOrdinals, size);
+            zipCodes = Arrays.copyOf(zipCodes, size);
+            speedLimits = Arrays.copyOf(speedLimits, size);
+            oneway = Arrays.copyOf(oneway, size);
+            nameIndices = Arrays.copyOf(nameIndices, size);
+            bounds = Arrays.copyOf(bounds, size * 4);
+            timeOffsets = Arrays.copyOf(timeOffsets, size);
+            if (geometryOffsets != null) {
+                geometryOffsets = Arrays.copyOf(geometryOffsets, size);
+            }
+        }
+        typeOrdinals[r] = (byte)road.type.ordinal();
+        zipCodes[r] = road.zipCode;
+        speedLimits[r] = road.speedLimit;
+        oneway[r] = road.oneway;
+        Integer name = nameIndex.get(road.name);
+        if (name == null) {
+            name = names.size();
+            names.add(road.name);
+            nameIndex.put(road.name, name);
+        }
+        nameIndices[r] = name;
+        bounds[r * 4] = road.bounds.x;
+        bounds[r * 4 + 1] = road.bounds.y;
+        bounds[r * 4 + 2] = road.bounds.width;
+        bounds[r * 4 + 3] = road.bounds.height;
+
+        int n = road.xs.length;
+        if (vertexCount + n > nodeIndices.length) {
+            int size = Math.max(nodeIndices.length * 2, vertexCount + n);
+            if (resolution == 0) {
+                xs = Arrays.copyOf(xs, size);
+                ys = Arrays.copyOf(ys, size);
+            }
+            nodeIndices = Arrays.copyOf(nodeIndices, size);
+            detailLevels = Arrays.copyOf(detailLevels, size);
+        }
+        System.arraycopy(road.levels, 0, detailLevels, vertexCount, n);
+        if (resolution > 0) {
+            encode(road.xs, road.ys, n);
+            geometryOffsets[r + 1] = geometryLength;
+        }
+        if (resolution == 0) {
+            System.arraycopy(road.xs, 0, xs, vertexCount, n);
+            System.arraycopy(road.ys, 0, ys, vertexCount, n);
+        }
+        for (int i = 0; i < n; i++) {
+            nodeIndices[vertexCount + i] = index(road.ids[i]);
+        }
+        timeOffsets[r] = -1;
+        if (road.driveTimes.length > 0) {
+            if (driveTimeCount + n > driveTimes.length) {
+                driveTimes = Arrays.copyOf(driveTimes, 
+                        Math.max(driveTimes.length * 2, driveTimeCount + n));
+            }
+            System.arraycopy(road.driveTimes, 0, driveTimes, driveTimeCount, n - 1);
+            timeOffsets[r] = driveTimeCount;
+            driveTimeCount += n - 1;
+        }
+        vertexCount += n;
+        offsets[r + 1] = vertexCount;
+        roadCount++;
+        return new Ref(r);
+    }
+
+    /**
+     * Returns the index of the node with the given id, giving it the next
+     * free index if it is new
+     */
+    private int index(long id) {
+        int index = nodeIndex.putIfAbsent(id, nodeCount);
+        if (index >= 0) {
+            return index;
+        }
+        if (nodeCount == nodeIds.length) {
+            nodeIds = Arrays.copyOf(nodeIds, nodeCount * 2);
+        }
+        nodeIds[nodeCount] = id;
+        return nodeCount++;
+    }
+
+    /**
+     * Appends the quantized coordinates of the vertices to the geometry, 
+     * each as the zigzag-encoded difference from the previous one
+     */
+    private void encode(float[] x, float[] y, int n) {
+        if (geometryLength + n * 10 > geometry.length) {
+            geometry = Arrays.copyOf(geometry, 
+                    Math.max(geometry.length * 2, geometryLength + n * 10));
+        }
+        int px = 0, py = 0;
+        for (int i = 0; i < n; i++) {
+            int qx = Math.round((x[i] - originX) / resolution);
+            int qy = Math.round((y[i] - originY) / resolution);
+            writeVarint((qx - px << 1) ^ (qx - px >> 31));
+            writeVarint((qy - py << 1) ^ (qy - py >> 31));
+            px = qx;
+            py = qy;
+        }
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            geometry[geometryLength++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        geometry[geometryLength++] = (byte)value;
+    }
+
+    /**
+     * Decodes the coordinates of a road in quantized mode
+     */
+    private void decode(int road, float[] x, float[] y) {
+        decode(road, x, y, offsets[road + 1] - offsets[road]);
+    }
+
+    /**
+     * Decodes the first n coordinates of a road in quantized mode
+     */
+    private void decode(int road, float[] x, float[] y, int n) {
+        int pos = geometryOffsets[road];
+        int qx = 0, qy = 0;
+        for (int i = 0; i < n; i++) {
+            int value = 0, shift = 0, b;
+            do {
+                b = geometry[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            qx += (value >>> 1) ^ -(value & 1);
+            value = 0;
+            shift = 0;
+            do {
+                b = geometry[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            qy += (value >>> 1) ^ -(value & 1);
+            x[i] = originX + qx * resolution;
+            y[i] = originY + qy * resolution;
+        }
+    }
+
+    /**
+     * Decodes a single coordinate of a road in quantized mode, which means
+     * decoding the vertices before it as well
+     */
+    private float decode(int road, int vertex, boolean wantX) {
+        int pos = geometryOffsets[road];
+        int qx = 0, qy = 0;
+        for (int i = 0; i <= vertex; i++) {
+            int value = 0, shift = 0, b;
+            do {
+                b = geometry[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            qx += (value >>> 1) ^ -(value & 1);
+            value = 0;
+            shift = 0;
+            do {
+                b = geometry[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            qy += (value >>> 1) ^ -(value & 1);
+        }
+        return wantX? originX + qx * resolution: originY + qy * resolution;
+    }
+
+    /**
+     * Returns the length of a segment of a road, from the coordinates it is
+     * stored with
+     */
+    private double segmentLength(int road, int segment) {
+        float x1, y1, x2, y2;
+        if (resolution == 0) {
+            int v = offsets[road] + segment;
+            x1 = xs[v];
+            y1 = ys[v];
+            x2 = xs[v + 1];
+            y2 = ys[v + 1];
+        } else {
+            float[] x = new float[segment + 2];
+            float[] y = new float[segment + 2];
+            decode(road, x, y, segment + 2);
+            x1 = x[segment];
+            y1 = y[segment];
+            x2 = x[segment + 1];
+            y2 = y[segment + 1];
+        }
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns whether the coordinates are stored as fixed-point numbers
+     * @return whether the coordinates are quantized
+     */
+    public boolean isQuantized() {
+        return resolution > 0;
+    }
+
+    /**
+     * Shrinks the columns to what is used, once every road is added
+     */
+    public void trim() {
+        offsets = Arrays.copyOf(offsets, roadCount + 1);
+        typeOrdinals = Arrays.copyOf(typeOrdinals, roadCount);
+        zipCodes = Arrays.copyOf(zipCodes, roadCount);
+        speedLimits = Arrays.copyOf(speedLimits, roadCount);
+        oneway = Arrays.copyOf(oneway, roadCount);
+        nameIndices = Arrays.copyOf(nameIndices, roadCount);
+        bounds = Arrays.copyOf(bounds, roadCount * 4);
+        if (resolution == 0) {
+            xs = Arrays.copyOf(xs, vertexCount);
+            ys = Arrays.copyOf(ys, vertexCount);
+        } else {
+            geometryOffsets = Arrays.copyOf(geometryOffsets, roadCount + 1);
+            geometry = Arrays.copyOf(geometry, geometryLength);
+        }
+        nodeIndices = Arrays.copyOf(nodeIndices, vertexCount);
+        detailLevels = Arrays.copyOf(detailLevels, vertexCount);
+        timeOffsets = Arrays.copyOf(timeOffsets, roadCount);
+        driveTimes = Arrays.copyOf(driveTimes, driveTimeCount);
+        nodeIds = Arrays.copyOf(nodeIds, nodeCount);
+        names.trimToSize();
+        nameIndex = new HashMap<>(); // Only needed while adding
+        nodeIndex = new LongIntMap(); // Likewise
+    }
+
+    /**
+     * Returns the number of roads in the store
+     * @return the number of roads in the store
+     */
+    public int size() {
+        return roadCount;
+    }
+
+    /**
+     * Returns the number of vertices of all the roads in the store
+     * @return the number of vertices in the store
+     */
+    public int vertices() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the number of distinct nodes of the roads in the store, which
+     * have the indices 0 until this
+     * @return the number of nodes in the store
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the ids of the nodes by node index. The array is the store's
+     * own (see trim), so it can be shared but must not be changed.
+     * @return the ids of the nodes
+     */
+    public long[] nodeIds() {
+        return nodeIds;
+    }
+
+    /**
+     * Fills in the coordinates of every node by node index
+     * @param x The x-coordinates, of at least nodeCount elements
+     * @param y The y-coordinates
+     */
+    public void nodeCoordinates(float[] x, float[] y) {
+        float[] roadX = new float[64];
+        float[] roadY = new float[64];
+        for (int r = 0; r < roadCount; r++) {
+            int n = offsets[r + 1] - offsets[r];
+            if (n > roadX.length) {
+                roadX = new float[Math.max(n, roadX.length * 2)];
+                roadY = new float[roadX.length];
+            }
+            if (resolution == 0) {
+                System.arraycopy(xs, offsets[r], roadX, 0, n);
+                System.arraycopy(ys, offsets[r], roadY, 0, n);
+            } else {
+                decode(r, roadX, roadY);
+            }
+            for (int i = 0; i < n; i++) {
+                int index = nodeIndices[offsets[r] + i];
+                x[index] = roadX[i];
+                y[index] = roadY[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package classes;
+
+import enums.RoutingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The RouteCache class remembers the most recently used routes, so asking
+ * for the same route again needs no search. The way back is not taken from
+ * the cache, since the fastest route back may use other (one-way) roads.
+ * It is tied to the graph the routes were found in, and forgets everything
+ * when asked about another graph.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class RouteCache {
+
+    /**
+     * The key of a cached route
+     */
+    private static class RouteKey {
+        public final long sourceID;
+        public final long targetID;
+        public final RoutingMode mode;
+
+        public RouteKey(long sourceID, long targetID, RoutingMode mode) {
+            this.sourceID = sourceID;
+            this.targetID = targetID;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RouteKey)) {
+                return false;
+            }
+            RouteKey other = (RouteKey)obj;
+            return sourceID == other.sourceID && targetID == other.targetID 
+                    && mode == other.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = sourceID * 31 + targetID;
+            return (int)(h ^ (h >>> 32)) * 31 + mode.ordinal();
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<RouteKey, Road.Edge[]> routes;
+    private Graph graph = null;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructor for the RouteCache class
+     * @param capacity The number of routes to remember
+     */
+    public RouteCache(final int capacity) {
+        this.capacity = capacity;
+        // An access-ordered map, so the eldest entry is the least recently used
+        routes = new LinkedHashMap<RouteKey, Road.Edge[]>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, Road.Edge[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Forgets the routes if they were found in another graph
+     */
+    private void checkGraph(Graph graph) {
+        if (this.graph != graph) {
+            routes.clear();
+            this.graph = graph;
+        }
+    }
+
+    /**
+     * Returns the cached route between the given nodes
+     * @param graph The graph the route should be in
+     * @param sourceID The id of the start node
+     * @param targetID The id of the target node
+     * @param mode The routing mode of the route
+     * @return The cached route, or null if there is none
+     */
+    public synchronized Road.Edge[] get(Graph graph, long sourceID, long targetID, RoutingMode mode) {
+        checkGraph(graph);
+        Road.Edge[] route = routes.get(new RouteKey(sourceID, targetID, mode));
+        if (route == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return route;
+    }
+
+    /**
+     * Remembers a route
+     * @param graph The graph the route was found in
+     * @param sourceID The id of the start node
+     * @param targetID The id of the target node
+     * @param mode The routing mode of the route
+     * @param route The route
+     */
+    public synchronized void put(Graph graph, long sourceID, long targetID, 
+            RoutingMode mode, Road.Edge[] route) {
+        checkGraph(graph);
+        routes.put(new RouteKey(sourceID, targetID, mode), route);
+    }
+
+    /**
+     * Forgets every route (the counters are kept)
+     */
+    public synchronized void clear() {
+        routes.clear();
+    }
+
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RouteCache("+routes.size()+"/"+capacity+" routes, "
+                +hits+" hits, "+misses+" misses)";
+    }
+}
@@ -9,8 +9,11 @@ import interfaces.Receiver;
 import java.awt.event.ActionEvent;
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SpringLayout;
 
 /**
@@ -22,9 +25,10 @@ public class RoutePanel extends JPanel implements Receiver<Road>{
     private final AutoCompleter fromField;
     private final AutoCompleter toField;
     private final RouteDescriptionPanel descriptionPanel;
+    private final JSpinner reachSpinner; // Minutes for the reachable area (0 is off)
     final Controller con;
     
-    public RoutePanel(Model model, final OptimizedView view, final Graph graph, final Controller con) {
+    public RoutePanel(Model model, final OptimizedView view, final RoutingService routing, final Controller con) {
         super(new SpringLayout());
         this.con = con;
         descriptionPanel = new RouteDescriptionPanel();
@@ -40,14 +44,19 @@ public class RoutePanel extends JPanel implements Receiver<Road>{
                 if (toField.getRoad() == null || fromField.getRoad() == null) {
                     JOptionPane.showMessageDialog(panel, "Please choose two roads", "Information", JOptionPane.INFORMATION_MESSAGE);
                 } else {
-                    Road.Edge[] result = PathFinder.findPath(graph, fromField.getRoad().nodes[1].id, toField.getRoad().nodes[1].id);
+                    Road.Edge[] result = PathFinder.findPath(routing, fromField.getRoad().nodes[1].id, toField.getRoad().nodes[1].id);
                     view.setPath(result);
                     descriptionPanel.setRoute(result);
                 }
             }
         }));
+        JPanel reachPanel = new JPanel();
+        reachPanel.add(new JLabel("Reachable within (min):"));
+        reachSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 120, 5));
+        reachPanel.add(reachSpinner);
+        add(reachPanel);
         add(descriptionPanel);
-        SpringUtilities.makeCompactGrid(this, 4, 1, 0, 0, 1, 1);
+        SpringUtilities.makeCompactGrid(this, 5, 1, 0, 0, 1, 1);
     }
     
     private boolean pathStart;
@@ -61,6 +70,15 @@ public class RoutePanel extends JPanel implements Receiver<Road>{
         Finder.findNearestRoad(end.x, end.y, this, con);
     }
     
+    /**
+     * Returns how many minutes of driving the reachable area from the start
+     * should show, or 0 if it shouldn't be shown
+     * @return the drive time of the reachable area in minutes
+     */
+    public int getReachLimit() {
+        return (Integer)reachSpinner.getValue();
+    }
+    
     public void setRoute(Road.Edge[] route) {
         descriptionPanel.setRoute(route);
     }
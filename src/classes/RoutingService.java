@@ -0,0 +1,356 @@
+package classes;
+
+import classes.Graph.NoPathException;
+import enums.RoutingMode;
+import interfaces.Receiver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The RoutingService class answers route queries on a single, unchanging
+ * graph. Any number of threads may query it at once: each query borrows a
+ * search context from a pool and returns it afterwards, so the contexts are
+ * only allocated once per concurrently running query. Queries can also be
+ * submitted to the service's own thread pool, which returns futures.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class RoutingService {
+
+    public final Graph graph;
+    public final RouteCache cache = new RouteCache(256);
+    private final ConcurrentLinkedQueue<SearchContext> pool = new ConcurrentLinkedQueue<>();
+    private final ExecutorService executor;
+    private final ForkJoinPool matrixPool; // Splits matrix queries by source
+    private volatile ContractionHierarchy hierarchy = null;
+    private volatile Landmarks landmarks = null;
+
+    /**
+     * Constructor for the RoutingService class
+     * @param graph The graph to route on
+     * @param threads The number of threads used for submitted queries
+     */
+    public RoutingService(Graph graph, int threads) {
+        this.graph = graph;
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Router-" + count.getAndIncrement());
+                thread.setDaemon(true); // Don't keep the program alive
+                return thread;
+            }
+        });
+        matrixPool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Constructor for the RoutingService class, using a thread per core
+     * @param graph The graph to route on
+     */
+    public RoutingService(Graph graph) {
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Borrows a search context from the pool, creating one if none are free
+     * @return A search context that no other query is using
+     */
+    protected SearchContext acquire() {
+        SearchContext context = pool.poll();
+        return (context != null)? context: new SearchContext(graph);
+    }
+
+    /**
+     * Returns a borrowed search context to the pool
+     * @param context The context
+     */
+    protected void release(SearchContext context) {
+        pool.offer(context);
+    }
+
+    /**
+     * Sets the contraction hierarchy of the graph, which makes it the
+     * default routing mode
+     * @param hierarchy The hierarchy, or null to route with A* only
+     */
+    public void setHierarchy(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * Selects landmarks for the graph on the service's threads, and makes
+     * them the default heuristic once they are ready
+     * @param bounds The bounds of the map
+     * @param count The number of landmarks
+     * @return The future landmarks
+     */
+    public Future<Landmarks> computeLandmarks(final Rect bounds, final int count) {
+        return executor.submit(new Callable<Landmarks>() {
+            @Override
+            public Landmarks call() {
+                landmarks = Landmarks.select(graph, bounds, count);
+                return landmarks;
+            }
+        });
+    }
+
+    /**
+     * Sets the landmarks of the graph
+     * @param landmarks The landmarks, or null to use the straight-line
+     * heuristic only
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Returns the routing mode used when none is given: the contraction
+     * hierarchy if there is one, then landmarks, otherwise plain A*
+     * @return the default routing mode
+     */
+    public RoutingMode defaultMode() {
+        if (hierarchy != null) {
+            return RoutingMode.Hierarchy;
+        }
+        return (landmarks != null)? RoutingMode.Landmarks: RoutingMode.AStar;
+    }
+
+    /**
+     * Finds the fastest route between the given nodes on the calling thread
+     * @param sourceID The id of the start node
+     * @param targetID The id of the target node
+     * @return The edges of the route, in order
+     * @throws classes.Graph.NoPathException if there is no route
+     */
+    public Road.Edge[] route(long sourceID, long targetID) throws NoPathException {
+        return route(sourceID, targetID, defaultMode());
+    }
+
+    /**
+     * Finds the fastest route between the given nodes with the given
+     * algorithm on the calling thread. Recently found routes are served from
+     * the route cache.
+     * @param sourceID The id of the start node
+     * @param targetID The id of the target node
+     * @param mode The algorithm to use
+     * @return The edges of the route, in order
+     * @throws classes.Graph.NoPathException if there is no route
+     */
+    public Road.Edge[] route(long sourceID, long targetID, RoutingMode mode) throws NoPathException {
+        Road.Edge[] route = cache.get(graph, sourceID, targetID, mode);
+        if (route != null) {
+            return route.clone(); // The caller may change its array
+        }
+        int source = graph.index(sourceID);
+        int target = graph.index(targetID);
+        SearchContext context = acquire();
+        try {
+            route = context.toEdges(findPath(context, source, target, mode));
+        } finally {
+            release(context);
+        }
+        cache.put(graph, sourceID, targetID, mode, route.clone());
+        return route;
+    }
+
+    /**
+     * Runs the search of the given mode in a context
+     */
+    private int[] findPath(SearchContext context, int source, int target, 
+            RoutingMode mode) throws NoPathException {
+        switch (mode) {
+            case Hierarchy:
+                ContractionHierarchy ch = hierarchy;
+                if (ch == null) {
+                    throw new IllegalStateException("No contraction hierarchy has been loaded");
+                }
+                return context.findPath(ch, source, target);
+            case Landmarks:
+                Landmarks lm = landmarks;
+                if (lm == null) {
+                    throw new IllegalStateException("No landmarks have been selected");
+                }
+                return context.findPath(lm, source, target);
+            case Bidirectional:
+                return context.findPathBidirectional(source, target);
+            default:
+                return context.findPath(source, target);
+        }
+    }
+
+    /**
+     * Finds the area that can be reached from a node within a drive time
+     * @param sourceID The id of the start node
+     * @param limit The drive time budget in minutes
+     * @return The isochrone of the node
+     * @throws classes.Graph.NoPathException if the node isn't in the graph
+     */
+    public Isochrone isochrone(long sourceID, float limit) throws NoPathException {
+        int source = graph.index(sourceID);
+        SearchContext context = acquire();
+        try {
+            return Isochrone.compute(context, source, limit);
+        } finally {
+            release(context);
+        }
+    }
+
+    /**
+     * Queues an isochrone query on the service's threads, which hand the
+     * result to the receiver once it is found
+     * @param sourceID The id of the start node
+     * @param limit The drive time budget in minutes
+     * @param receiver Whom to give the isochrone to (it gets null if the node
+     * isn't in the graph). It is called on one of the service's threads.
+     * @return The future of the query, which may be cancelled while queued
+     */
+    public Future<?> submitIsochrone(final long sourceID, final float limit,
+            final Receiver<Isochrone> receiver) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Isochrone area;
+                try {
+                    area = isochrone(sourceID, limit);
+                } catch (NoPathException ex) {
+                    area = null;
+                }
+                receiver.receive(area);
+            }
+        });
+    }
+
+    /**
+     * Queues a route query on the service's threads
+     * @param sourceID The id of the start node
+     * @param targetID The id of the target node
+     * @return The future route. Its get() throws an ExecutionException
+     * caused by a NoPathException if there is no route.
+     */
+    public Future<Road.Edge[]> submit(final long sourceID, final long targetID) {
+        return executor.submit(new Callable<Road.Edge[]>() {
+            @Override
+            public Road.Edge[] call() throws NoPathException {
+                return route(sourceID, targetID);
+            }
+        });
+    }
+
+    /**
+     * Queues a batch of route queries on the service's threads
+     * @param sourceIDs The ids of the start nodes
+     * @param targetIDs The ids of the target nodes (one per start node)
+     * @return The future routes, in the order of the queries
+     */
+    public List<Future<Road.Edge[]>> submitAll(long[] sourceIDs, long[] targetIDs) {
+        if (sourceIDs.length != targetIDs.length) {
+            throw new IllegalArgumentException("Every source needs a target ("
+                    +sourceIDs.length+" sources, "+targetIDs.length+" targets)");
+        }
+        List<Future<Road.Edge[]>> routes = new ArrayList<>(sourceIDs.length);
+        for (int i = 0; i < sourceIDs.length; i++) {
+            routes.add(submit(sourceIDs[i], targetIDs[i]));
+        }
+        return routes;
+    }
+
+    /**
+     * Returns the index of each node id, or -1 for ids not in the graph
+     */
+    private int[] indices(long[] ids) {
+        int[] indices = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                indices[i] = graph.index(ids[i]);
+            } catch (NoPathException ex) {
+                indices[i] = -1;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Finds the drive times from a source to many targets
+     * @param sourceID The id of the start node
+     * @param targetIDs The ids of the target nodes
+     * @return The drive time to each target, or infinity where there is no
+     * route (or the node isn't in the graph)
+     */
+    public float[] distances(long sourceID, long[] targetIDs) {
+        return matrix(new long[] { sourceID }, targetIDs)[0];
+    }
+
+    /**
+     * Finds the drive times between every source and every target. There
+     * is a search per source, which stops once all the targets are reached,
+     * and the searches run in parallel on a fork/join pool.
+     * @param sourceIDs The ids of the start nodes
+     * @param targetIDs The ids of the target nodes
+     * @return The matrix of drive times, indexed [source][target], with
+     * infinity where there is no route (or a node isn't in the graph)
+     */
+    public float[][] matrix(long[] sourceIDs, long[] targetIDs) {
+        int[] sources = indices(sourceIDs);
+        int[] targets = indices(targetIDs);
+        float[][] times = new float[sources.length][targets.length];
+        matrixPool.invoke(new MatrixTask(sources, targets, times, 0, sources.length));
+        return times;
+    }
+
+    /**
+     * Computes the rows of a part of a travel time matrix, splitting it in
+     * two until only a few sources are left
+     */
+    private class MatrixTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int rowsPerTask = 4;
+        private final int[] sources;
+        private final int[] targets;
+        private final float[][] times;
+        private final int from, to;
+
+        public MatrixTask(int[] sources, int[] targets, float[][] times, int from, int to) {
+            this.sources = sources;
+            this.targets = targets;
+            this.times = times;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > rowsPerTask) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MatrixTask(sources, targets, times, from, middle),
+                        new MatrixTask(sources, targets, times, middle, to));
+                return;
+            }
+            SearchContext context = acquire();
+            try {
+                for (int i = from; i < to; i++) {
+                    context.distances(sources[i], targets, times[i]);
+                }
+            } finally {
+                release(context);
+            }
+        }
+    }
+
+    /**
+     * Stops the threads of the service once the queued queries are done
+     */
+    public void shutdown() {
+        executor.shutdown();
+        matrixPool.shutdown();
+    }
+}
@@ -0,0 +1,470 @@
+package classes;
+
+import classes.Graph.NoPathException;
+
+/**
+ * The SearchContext class holds the state of shortest path searches on a
+ * graph: tentative drive times, the arcs the nodes were reached by and an
+ * indexed heap. The arrays are allocated once per graph and reset in constant
+ * time through a generation stamp, so repeated queries allocate nothing but
+ * their result. A context may only be used by one search at a time.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class SearchContext {
+
+    // Highest speed assumed by the straight-line heuristic
+    private static final float maxSpeed = 130;
+
+    public final Graph graph;
+    private final float[] dist; // The tentative drive time to each node
+    private final int[] arcTo; // The arc each node was reached by
+    private final int[] nodeTo; // The node each node was reached from
+    private final int[] stamps; // The search in which each node was reached
+    private int generation = 0;
+    private final IndexedHeap heap;
+    private int settled; // The number of nodes settled by the last search
+
+    // The backward search of bidirectional queries, allocated on first use
+    private float[] distB;
+    private int[] edgeB; // The edge each node was reached by, backwards
+    private int[] nodeB; // The node each node was reached from, backwards
+    private int[] stampsB;
+    private IndexedHeap heapB;
+    private final IntList stack = new IntList(); // Scratch for unpacking
+    private final int[] active = new int[Landmarks.activeCount]; // The landmarks of a query
+    private int[] targetStamps; // The search in which each node was a target
+
+    /**
+     * Constructor for the SearchContext class
+     * @param graph The graph to search in
+     */
+    public SearchContext(Graph graph) {
+        this.graph = graph;
+        int size = graph.size();
+        dist = new float[size];
+        arcTo = new int[size];
+        nodeTo = new int[size];
+        stamps = new int[size];
+        heap = new IndexedHeap(size);
+    }
+
+    /**
+     * Starts a new search, forgetting everything about the previous one
+     */
+    private void reset() {
+        if (++generation == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(stamps, 0);
+            if (stampsB != null) {
+                java.util.Arrays.fill(stampsB, 0);
+            }
+            if (targetStamps != null) {
+                java.util.Arrays.fill(targetStamps, 0);
+            }
+            generation = 1;
+        }
+        heap.clear();
+        settled = 0;
+    }
+
+    /**
+     * Returns the drive time found to the given node by the last search
+     * @param v The node index
+     * @return The drive time to the node, or infinity if it wasn't reached
+     */
+    public float distTo(int v) {
+        return (stamps[v] == generation)? dist[v]: Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns how many nodes the last search settled
+     * @return how many nodes the last search settled
+     */
+    public int settled() {
+        return settled;
+    }
+
+    /**
+     * The straight-line heuristic (a distance divided by the top speed)
+     */
+    private float h(int v, float tx, float ty) {
+        float dx = graph.x(v) - tx;
+        float dy = graph.y(v) - ty;
+        return (float)Math.sqrt(dx * dx + dy * dy) / 1000 / maxSpeed;
+    }
+
+    /**
+     * Finds the fastest route between the given nodes with A*
+     * @param source The index of the start node
+     * @param target The index of the target node
+     * @return The arcs of the route, in order
+     * @throws classes.Graph.NoPathException if the target cannot be reached
+     */
+    public int[] findPath(int source, int target) throws NoPathException {
+        return findPath((Landmarks)null, source, target);
+    }
+
+    /**
+     * Finds the fastest route between the given nodes with A*, using the
+     * drive times to and from the given landmarks for a tighter heuristic
+     * @param landmarks The landmarks of the graph, or null to only use the
+     * straight-line heuristic
+     * @param source The index of the start node
+     * @param target The index of the target node
+     * @return The arcs of the route, in order
+     * @throws classes.Graph.NoPathException if the target cannot be reached
+     */
+    public int[] findPath(Landmarks landmarks, int source, int target) throws NoPathException {
+        reset();
+        float tx = graph.x(target);
+        float ty = graph.y(target);
+        int count = 0;
+        if (landmarks != null) {
+            count = landmarks.selectActive(source, target, active);
+        }
+        stamps[source] = generation;
+        dist[source] = 0;
+        heap.offer(source, h(source, tx, ty));
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            settled++;
+            if (v == target) {
+                return path(source, target);
+            }
+            float dv = dist[v];
+            for (int arc = graph.adjStart(v), end = graph.adjEnd(v); arc < end; arc++) {
+                int w = graph.other(arc);
+                float dw = dv + graph.weight(arc);
+                if (stamps[w] != generation || dw < dist[w]) {
+                    stamps[w] = generation;
+                    dist[w] = dw;
+                    arcTo[w] = arc;
+                    nodeTo[w] = v;
+                    float hw = h(w, tx, ty);
+                    if (count > 0) {
+                        hw = Math.max(hw, landmarks.lowerBound(w, target, active, count));
+                    }
+                    heap.offer(w, dw + hw);
+                }
+            }
+        }
+        throw new NoPathException();
+    }
+
+    /**
+     * Finds the drive times from the source to every node it can reach
+     * within the limit (or, going backwards, from those nodes to the source).
+     * The results are read with distTo.
+     * @param source The index of the start node
+     * @param reverse Whether to follow the arcs backwards
+     * @param limit The longest drive time to search
+     */
+    public void searchAll(int source, boolean reverse, float limit) {
+        searchAll(source, reverse, limit, null);
+    }
+
+    /**
+     * Finds the drive times from the source to every node it can reach
+     * within the limit, like searchAll, and lists the reached nodes
+     * @param source The index of the start node
+     * @param reverse Whether to follow the arcs backwards
+     * @param limit The longest drive time to search
+     * @param reached Where to add the settled nodes (or null), in the order
+     * they were settled
+     */
+    public void searchAll(int source, boolean reverse, float limit, IntList reached) {
+        reset();
+        stamps[source] = generation;
+        dist[source] = 0;
+        heap.offer(source, 0);
+        while (!heap.isEmpty() && heap.peekKey() <= limit) {
+            int v = heap.poll();
+            settled++;
+            if (reached != null) {
+                reached.add(v);
+            }
+            float dv = dist[v];
+            int start = reverse? graph.revStart(v): graph.adjStart(v);
+            int end = reverse? graph.revEnd(v): graph.adjEnd(v);
+            for (int i = start; i < end; i++) {
+                int arc = reverse? graph.revArc(i): i;
+                int w = reverse? graph.revTail(i): graph.other(arc);
+                float dw = dv + graph.weight(arc);
+                if (stamps[w] != generation || dw < dist[w]) {
+                    stamps[w] = generation;
+                    dist[w] = dw;
+                    arcTo[w] = arc;
+                    nodeTo[w] = v;
+                    heap.offer(w, dw);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the drive times from the source to each of the targets with a
+     * single Dijkstra search, which stops once every target is settled
+     * @param source The index of the start node
+     * @param targets The indices of the target nodes (-1 for none)
+     * @param times Where to put the drive time to each target (infinity if
+     * it cannot be reached)
+     */
+    public void distances(int source, int[] targets, float[] times) {
+        reset();
+        if (targetStamps == null) {
+            targetStamps = new int[graph.size()];
+        }
+        int remaining = 0;
+        for (int t : targets) {
+            if (t != -1 && targetStamps[t] != generation) {
+                targetStamps[t] = generation;
+                remaining++;
+            }
+        }
+        if (source != -1) {
+            stamps[source] = generation;
+            dist[source] = 0;
+            heap.offer(source, 0);
+        }
+        while (remaining > 0 && !heap.isEmpty()) {
+            int v = heap.poll();
+            settled++;
+            if (targetStamps[v] == generation) {
+                remaining--;
+            }
+            float dv = dist[v];
+            for (int arc = graph.adjStart(v), end = graph.adjEnd(v); arc < end; arc++) {
+                int w = graph.other(arc);
+                float dw = dv + graph.weight(arc);
+                if (stamps[w] != generation || dw < dist[w]) {
+                    stamps[w] = generation;
+                    dist[w] = dw;
+                    arcTo[w] = arc;
+                    nodeTo[w] = v;
+                    heap.offer(w, dw);
+                }
+            }
+        }
+        for (int i = 0; i < targets.length; i++) {
+            times[i] = (source == -1 || targets[i] == -1)? 
+                    Float.POSITIVE_INFINITY: distTo(targets[i]);
+        }
+    }
+
+    /**
+     * Allocates the state of the backward search, if it isn't there yet
+     */
+    private void ensureBackward() {
+        if (heapB == null) {
+            int size = graph.size();
+            distB = new float[size];
+            edgeB = new int[size];
+            nodeB = new int[size];
+            stampsB = new int[size];
+            heapB = new IndexedHeap(size);
+        }
+        heapB.clear();
+    }
+
+    /**
+     * Finds the fastest route between the given nodes with a Dijkstra search
+     * from each end, the backward one following the arcs in reverse. It stops
+     * once the smallest keys of the two searches together reach the best
+     * route found where they met, which is usually about half of the nodes
+     * a single search would settle.
+     * @param source The index of the start node
+     * @param target The index of the target node
+     * @return The arcs of the route, in order
+     * @throws classes.Graph.NoPathException if the target cannot be reached
+     */
+    public int[] findPathBidirectional(int source, int target) throws NoPathException {
+        reset();
+        ensureBackward();
+        stamps[source] = generation;
+        dist[source] = 0;
+        heap.offer(source, 0);
+        stampsB[target] = generation;
+        distB[target] = 0;
+        heapB.offer(target, 0);
+        float best = (source == target)? 0: Float.POSITIVE_INFINITY;
+        int meet = source;
+        while (!heap.isEmpty() && !heapB.isEmpty()
+                && heap.peekKey() + heapB.peekKey() < best) {
+            settled++;
+            if (heap.size() <= heapB.size()) { // Expand the smaller frontier
+                int v = heap.poll();
+                float dv = dist[v];
+                for (int arc = graph.adjStart(v), end = graph.adjEnd(v); arc < end; arc++) {
+                    int w = graph.other(arc);
+                    float dw = dv + graph.weight(arc);
+                    if (stamps[w] != generation || dw < dist[w]) {
+                        stamps[w] = generation;
+                        dist[w] = dw;
+                        arcTo[w] = arc;
+                        nodeTo[w] = v;
+                        heap.offer(w, dw);
+                        if (stampsB[w] == generation && dw + distB[w] < best) {
+                            best = dw + distB[w];
+                            meet = w;
+                        }
+                    }
+                }
+            } else {
+                int v = heapB.poll();
+                float dv = distB[v];
+                for (int i = graph.revStart(v), end = graph.revEnd(v); i < end; i++) {
+                    int arc = graph.revArc(i);
+                    int u = graph.revTail(i);
+                    float du = dv + graph.weight(arc);
+                    if (stampsB[u] != generation || du < distB[u]) {
+                        stampsB[u] = generation;
+                        distB[u] = du;
+                        edgeB[u] = arc;
+                        nodeB[u] = v;
+                        heapB.offer(u, du);
+                        if (stamps[u] == generation && du + dist[u] < best) {
+                            best = du + dist[u];
+                            meet = u;
+                        }
+                    }
+                }
+            }
+        }
+        if (best == Float.POSITIVE_INFINITY) {
+            throw new NoPathException();
+        }
+        // Join the forward route to the meeting node with the backward one
+        int forward = 0;
+        for (int v = meet; v != source; v = nodeTo[v]) {
+            forward++;
+        }
+        int length = forward;
+        for (int v = meet; v != target; v = nodeB[v]) {
+            length++;
+        }
+        int[] arcs = new int[length];
+        for (int v = meet, i = forward; v != source; v = nodeTo[v]) {
+            arcs[--i] = arcTo[v];
+        }
+        for (int v = meet, i = forward; v != target; v = nodeB[v]) {
+            arcs[i++] = edgeB[v];
+        }
+        return arcs;
+    }
+
+    /**
+     * Finds the fastest route between the given nodes in a contraction
+     * hierarchy of the graph. The forward search from the source only takes
+     * upward edges and the backward search from the target only takes
+     * downward edges, so both end at the most important node of the route.
+     * @param ch The contraction hierarchy of the graph
+     * @param source The index of the start node
+     * @param target The index of the target node
+     * @return The arcs of the route, in order
+     * @throws classes.Graph.NoPathException if the target cannot be reached
+     */
+    public int[] findPath(ContractionHierarchy ch, int source, int target) throws NoPathException {
+        reset();
+        ensureBackward();
+        stamps[source] = generation;
+        dist[source] = 0;
+        heap.offer(source, 0);
+        stampsB[target] = generation;
+        distB[target] = 0;
+        heapB.offer(target, 0);
+        float best = Float.POSITIVE_INFINITY;
+        int meet = -1;
+        while (true) {
+            boolean forward = !heap.isEmpty() && heap.peekKey() < best;
+            boolean backward = !heapB.isEmpty() && heapB.peekKey() < best;
+            if (!forward && !backward) {
+                break;
+            }
+            settled++;
+            if (forward && (!backward || heap.peekKey() <= heapB.peekKey())) {
+                int v = heap.poll();
+                float dv = dist[v];
+                if (stampsB[v] == generation && dv + distB[v] < best) {
+                    best = dv + distB[v];
+                    meet = v;
+                }
+                for (int i = ch.upStart(v), end = ch.upEnd(v); i < end; i++) {
+                    int w = ch.upTarget(i);
+                    float dw = dv + ch.upWeight(i);
+                    if (stamps[w] != generation || dw < dist[w]) {
+                        stamps[w] = generation;
+                        dist[w] = dw;
+                        arcTo[w] = ch.upEdge(i);
+                        nodeTo[w] = v;
+                        heap.offer(w, dw);
+                    }
+                }
+            } else {
+                int v = heapB.poll();
+                float dv = distB[v];
+                if (stamps[v] == generation && dv + dist[v] < best) {
+                    best = dv + dist[v];
+                    meet = v;
+                }
+                for (int i = ch.downStart(v), end = ch.downEnd(v); i < end; i++) {
+                    int u = ch.downTarget(i);
+                    float du = dv + ch.downWeight(i);
+                    if (stampsB[u] != generation || du < distB[u]) {
+                        stampsB[u] = generation;
+                        distB[u] = du;
+                        edgeB[u] = ch.downEdge(i);
+                        nodeB[u] = v;
+                        heapB.offer(u, du);
+                    }
+                }
+            }
+        }
+        if (meet == -1) {
+            throw new NoPathException();
+        }
+        return unpack(ch, source, target, meet);
+    }
+
+    /**
+     * Unpacks the hierarchy edges from the source over the meeting node to
+     * the target into the arcs of the route
+     */
+    private int[] unpack(ContractionHierarchy ch, int source, int target, int meet) {
+        IntList up = new IntList();
+        for (int v = meet; v != source; v = nodeTo[v]) {
+            up.add(arcTo[v]);
+        }
+        IntList arcs = new IntList(up.size() * 4);
+        while (!up.isEmpty()) {
+            ch.unpack(up.pop(), stack, arcs);
+        }
+        for (int v = meet; v != target; v = nodeB[v]) {
+            ch.unpack(edgeB[v], stack, arcs);
+        }
+        return arcs.toArray();
+    }
+
+    /**
+     * Follows the arcs back from the target to build the route
+     */
+    private int[] path(int source, int target) {
+        int length = 0;
+        for (int v = target; v != source; v = nodeTo[v]) {
+            length++;
+        }
+        int[] arcs = new int[length];
+        for (int v = target; v != source; v = nodeTo[v]) {
+            arcs[--length] = arcTo[v];
+        }
+        return arcs;
+    }
+
+    /**
+     * Returns the road edges of the given arcs
+     * @param arcs The arcs of a route
+     * @return The road edges of the route
+     */
+    public Road.Edge[] toEdges(int[] arcs) {
+        return graph.edges(arcs);
+    }
+}
@@ -0,0 +1,148 @@
+package classes;
+
+import interfaces.IRoad;
+
+/**
+ * The SegmentCursor class walks the segments of roads without allocating an
+ * object per segment: it is pointed at a road with reset, and each call of
+ * next moves it to the following segment, whose end points are then in
+ * x1, y1, x2 and y2. The same cursor can be reused for any number of roads.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class SegmentCursor {
+    public int index; // The current segment
+    public float x1, y1; // The start of the current segment
+    public float x2, y2; // The end of the current segment
+
+    private IRoad road;
+    private int vertices;
+    private float[] xs = new float[64]; // The coordinates of the road
+    private float[] ys = new float[64];
+    private byte[] levels = new byte[64]; // The detail level of each vertex
+    private boolean simplified; // Whether vertices were left out
+
+    /**
+     * Points the cursor at (before) the first segment of the given road
+     * @param road The road
+     * @return The cursor
+     */
+    public SegmentCursor reset(IRoad road) {
+        return reset(road, 0);
+    }
+
+    /**
+     * Points the cursor at (before) the first segment of the given road,
+     * simplified to the given level of detail (see DetailLevels). When
+     * simplified, the segments and vertices of the cursor are those of the
+     * simplified road, so they have no drive times.
+     * @param road The road
+     * @param level The level of detail, 0 being the full road
+     * @return The cursor
+     */
+    public SegmentCursor reset(IRoad road, int level) {
+        this.road = road;
+        vertices = road.nodeCount();
+        if (vertices > xs.length) {
+            xs = new float[Math.max(vertices, xs.length * 2)];
+            ys = new float[xs.length];
+            levels = new byte[xs.length];
+        }
+        road.getCoordinates(xs, ys);
+        simplified = false;
+        if (level > 0 && vertices > 2) {
+            road.getDetailLevels(levels, 0);
+            int kept = 0;
+            for (int i = 0; i < vertices; i++) {
+                if (levels[i] >= level) {
+                    xs[kept] = xs[i];
+                    ys[kept] = ys[i];
+                    kept++;
+                }
+            }
+            simplified = kept < vertices;
+            vertices = kept;
+        }
+        index = -1;
+        return this;
+    }
+
+    /**
+     * Moves the cursor to the next segment of the road
+     * @return Whether there was another segment
+     */
+    public boolean next() {
+        if (index + 2 >= vertices) {
+            return false;
+        }
+        index++;
+        x1 = xs[index];
+        y1 = ys[index];
+        x2 = xs[index + 1];
+        y2 = ys[index + 1];
+        return true;
+    }
+
+    /**
+     * Returns the length of the current segment
+     * @return The length of the current segment in meters
+     */
+    public float length() {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        return (float)Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns the drive time of the current segment. A cursor reset to a
+     * simplified road has no drive times.
+     * @return The drive time of the current segment in minutes
+     */
+    public float driveTime() {
+        if (simplified) {
+            throw new IllegalStateException("A simplified road has no drive times");
+        }
+        return road.getDriveTime(index);
+    }
+
+    /**
+     * Returns the number of vertices of the road
+     * @return the number of vertices of the road
+     */
+    public int vertexCount() {
+        return vertices;
+    }
+
+    /**
+     * Returns the larger of the width and the height of the (simplified) road
+     * @return The extent of the road in meters
+     */
+    public float extent() {
+        float minX = xs[0], maxX = xs[0], minY = ys[0], maxY = ys[0];
+        for (int i = 1; i < vertices; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        return Math.max(maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Returns the x-coordinate of a vertex of the road
+     * @param i The vertex
+     * @return The x-coordinate of the vertex
+     */
+    public float x(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Returns the y-coordinate of a vertex of the road
+     * @param i The vertex
+     * @return The y-coordinate of the vertex
+     */
+    public float y(int i) {
+        return ys[i];
+    }
+}
@@ -0,0 +1,384 @@
+package classes;
+
+import classes.Viewport.Projection;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The TileLayer class draws the map as square tiles of a fixed size, which
+ * are rendered from the model on a pool of worker threads and kept in a
+ * bounded cache (least recently used first out). The tiles of a zoom level
+ * form a grid anchored to the top left corner of the map, so panning only
+ * needs the tiles that come into view, and those can be fetched ahead of
+ * time. Painting never waits for a tile: a missing tile is requested and
+ * left blank until it is done, at which point the layer's listener is told
+ * to repaint. The cache grows with the view, so it always holds the tiles
+ * of the view and the ring around it twice over (the current and the last
+ * zoom level).
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public class TileLayer {
+
+    /**
+     * The key of a tile: its zoom (as pixels per unit) and its position in
+     * the grid of that zoom
+     */
+    private static class TileKey {
+        public final float ppu;
+        public final int x;
+        public final int y;
+
+        public TileKey(float ppu, int x, int y) {
+            this.ppu = ppu;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey)obj;
+            return Float.floatToIntBits(ppu) == Float.floatToIntBits(other.ppu)
+                    && x == other.x && y == other.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return (Float.floatToIntBits(ppu) * 31 + x) * 31 + y;
+        }
+    }
+
+    /**
+     * A rendered tile and the projection it was rendered with
+     */
+    private static class Tile {
+        public final BufferedImage image;
+        public final Projection projection;
+
+        public Tile(BufferedImage image, Projection projection) {
+            this.image = image;
+            this.projection = projection;
+        }
+    }
+
+    public static final int defaultTileSize = 256;
+    public static final int defaultCapacity = 96; // The least tiles kept, about 24 MB
+
+    private final Model model;
+    private final GraphicsConfiguration config; // Or null for plain images
+    private final int tileSize;
+    private final float originX; // The top left corner of the grid
+    private final float originY;
+    private final LinkedHashMap<TileKey, Tile> tiles;
+    private int capacity; // The number of tiles to keep, see fitCapacity
+    private final HashMap<TileKey, Future<?>> pending = new HashMap<>();
+    private final ExecutorService workers;
+    private final ThreadLocal<RoadRenderer> renderers;
+    private Runnable listener = null; // Told when a tile is done
+    private int generation = 0; // Counts the clears, so old renders are dropped
+    private float lastPpu = Float.NaN; // The zoom of the latest paint
+
+    /**
+     * Constructor for the TileLayer class
+     * @param model The model to draw the roads of
+     * @param ins The instructions for coloring the roads
+     * @param config The configuration to create compatible images for, or
+     * null to use plain RGB images
+     * @param tileSize The width and height of a tile in pixels
+     * @param capacity The least number of tiles to keep (more are kept if the
+     * view needs them)
+     * @param threads The number of threads rendering tiles
+     */
+    public TileLayer(Model model, final RenderInstructions ins, GraphicsConfiguration config,
+            int tileSize, int capacity, int threads) {
+        this.model = model;
+        this.config = config;
+        this.tileSize = tileSize;
+        originX = model.bounds.x;
+        originY = model.bounds.top();
+        this.capacity = capacity;
+        final int minimum = capacity;
+        tiles = new LinkedHashMap<TileKey, Tile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, Tile> eldest) {
+                return size() > Math.max(minimum, TileLayer.this.capacity);
+            }
+        };
+        workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Tiles-" + count.getAndIncrement());
+                thread.setDaemon(true); // Don't keep the program alive
+                return thread;
+            }
+        });
+        renderers = new ThreadLocal<RoadRenderer>() {
+            @Override
+            protected RoadRenderer initialValue() {
+                return new RoadRenderer(ins);
+            }
+        };
+    }
+
+    /**
+     * Constructor for the TileLayer class, with default sizes and a thread
+     * per core
+     * @param model The model to draw the roads of
+     * @param ins The instructions for coloring the roads
+     * @param config The configuration to create compatible images for
+     */
+    public TileLayer(Model model, RenderInstructions ins, GraphicsConfiguration config) {
+        this(model, ins, config, defaultTileSize, defaultCapacity,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Sets what to run (on a worker thread) whenever a tile is done
+     * @param listener The listener, eg. a repaint of the view
+     */
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Paints the tiles covering a view. Missing tiles are requested and
+     * left unpainted.
+     * @param g2d The graphics object of the view
+     * @param p The projection of the view
+     * @param width The width of the view
+     * @param height The height of the view
+     * @return Whether every tile was there
+     */
+    public boolean paint(Graphics2D g2d, Projection p, int width, int height) {
+        if (p.source.width == 0 || width == 0 || height == 0) {
+            return true;
+        }
+        int[] range = tileRange(p, width, height);
+        boolean complete = true;
+        synchronized (this) {
+            if (p.ppu != lastPpu) { // Renders for another zoom are now useless
+                cancelOtherZooms(p.ppu);
+                lastPpu = p.ppu;
+            }
+            fitCapacity(range);
+            for (int ty = range[1]; ty <= range[3]; ty++) {
+                for (int tx = range[0]; tx <= range[2]; tx++) {
+                    TileKey key = new TileKey(p.ppu, tx, ty);
+                    Tile tile = tiles.get(key);
+                    if (tile == null) {
+                        request(key);
+                        complete = false;
+                        continue;
+                    }
+                    // Placed by its own projection, so rounding can't open seams
+                    Projection tp = tile.projection;
+                    int x = Math.round(p.target.x + (tp.source.x - p.source.x) * p.ppu);
+                    int y = Math.round(height - (p.target.y + (tp.source.y - p.source.y) * p.ppu)) - tileSize;
+                    g2d.drawImage(tile.image, x, y, null);
+                }
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Requests the tiles just beyond the view in the direction it is moving,
+     * so they are likely done when they come into view
+     * @param p The projection of the view
+     * @param width The width of the view
+     * @param height The height of the view
+     * @param dx The eastward movement of the map in pixels (as for moveMap)
+     * @param dy The northward movement of the map in pixels
+     */
+    public void prefetch(Projection p, int width, int height, int dx, int dy) {
+        if (p.source.width == 0 || width == 0 || height == 0) {
+            return;
+        }
+        int[] range = tileRange(p, width, height);
+        synchronized (this) {
+            if (dx != 0) { // The map moving right shows what is to the left
+                int tx = (dx > 0)? range[0] - 1: range[2] + 1;
+                for (int ty = range[1] - 1; ty <= range[3] + 1; ty++) {
+                    request(new TileKey(p.ppu, tx, ty));
+                }
+            }
+            if (dy != 0) { // The map moving up shows what is below
+                int ty = (dy > 0)? range[3] + 1: range[1] - 1;
+                for (int tx = range[0] - 1; tx <= range[2] + 1; tx++) {
+                    request(new TileKey(p.ppu, tx, ty));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every tile, eg. when the road types or colors change
+     */
+    public synchronized void clear() {
+        generation++;
+        ArrayList<Future<?>> renders = new ArrayList<>(pending.values());
+        pending.clear();
+        for (Future<?> render : renders) {
+            render.cancel(false);
+        }
+        tiles.clear();
+    }
+
+    /**
+     * Drops the tiles of every zoom but the given one, eg. when a type of
+     * road that can't be seen at that zoom is switched on or off
+     * @param ppu The zoom (as pixels per unit) of the tiles to keep
+     */
+    public synchronized void retainZoom(float ppu) {
+        cancelOtherZooms(ppu);
+        Iterator<TileKey> it = tiles.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().ppu != ppu) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Returns the tiles (first x, first y, last x, last y) covering a view
+     */
+    private int[] tileRange(Projection p, int width, int height) {
+        double ppu = p.ppu;
+        double left = (p.source.x - originX) * ppu - p.target.x;
+        // The top of the view is 'height' pixels above the bottom of the source
+        double top = (originY - p.source.y) * ppu - (height - p.target.y);
+        return new int[] {
+            (int)Math.floor(left / tileSize),
+            (int)Math.floor(top / tileSize),
+            (int)Math.floor((left + width - 1) / tileSize),
+            (int)Math.floor((top + height - 1) / tileSize)
+        };
+    }
+
+    /**
+     * Grows the cache to hold the tiles of the given range and the ring
+     * around it (see prefetch), for this and the last zoom level.
+     * Must be called while holding the lock.
+     */
+    private void fitCapacity(int[] range) {
+        int columns = range[2] - range[0] + 3;
+        int rows = range[3] - range[1] + 3;
+        capacity = Math.max(capacity, 2 * columns * rows);
+    }
+
+    /**
+     * Starts rendering a tile unless it is there or on its way.
+     * Must be called while holding the lock.
+     */
+    private void request(final TileKey key) {
+        if (tiles.containsKey(key) || pending.containsKey(key)) {
+            return;
+        }
+        final int gen = generation;
+        FutureTask<Tile> render = new FutureTask<Tile>(new Callable<Tile>() {
+            @Override
+            public Tile call() {
+                return render(key);
+            }
+        }) {
+            @Override
+            protected void done() {
+                // Called however the render ended, so a failed render is never left pending
+                Tile tile = null;
+                if (!isCancelled()) {
+                    try {
+                        tile = get();
+                    } catch (InterruptedException | ExecutionException ex) {
+                        System.out.println("Could not render a tile: "+ex.getCause());
+                    }
+                }
+                synchronized (TileLayer.this) {
+                    if (pending.get(key) == this) {
+                        pending.remove(key);
+                    }
+                    if (tile == null || gen != generation) {
+                        return; // Failed, cancelled or cleared while rendering
+                    }
+                    tiles.put(key, tile);
+                }
+                Runnable l = listener;
+                if (l != null) {
+                    l.run();
+                }
+            }
+        };
+        pending.put(key, render);
+        workers.execute(render);
+    }
+
+    /**
+     * Cancels the renders of tiles that aren't of the given zoom.
+     * Must be called while holding the lock.
+     */
+    private void cancelOtherZooms(float ppu) {
+        Iterator<Map.Entry<TileKey, Future<?>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<TileKey, Future<?>> entry = it.next();
+            if (entry.getKey().ppu != ppu) {
+                it.remove();
+                entry.getValue().cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Renders a tile from the model
+     */
+    private Tile render(TileKey key) {
+        float units = tileSize / key.ppu; // The width of the tile in map units
+        Rect source = new Rect(originX + key.x * units, originY - (key.y + 1) * units,
+                units, units);
+        Projection p = new Projection(source, new Rect(0, 0, tileSize, tileSize));
+        BufferedImage image = (config != null)
+                ? config.createCompatibleImage(tileSize, tileSize)
+                : new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(OptimizedView.clearColor);
+        g2d.fillRect(0, 0, tileSize, tileSize);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        RoadRenderer renderer = renderers.get();
+        renderer.setTarget(g2d, p, tileSize);
+        model.getRoads(renderer, p);
+        g2d.dispose();
+        return new Tile(image, p);
+    }
+
+    /**
+     * Returns the number of tiles in the cache
+     * @return the number of tiles in the cache
+     */
+    public synchronized int size() {
+        return tiles.size();
+    }
+}
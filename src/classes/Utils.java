@@ -2,6 +2,9 @@ package classes;
 
 import java.awt.Dimension;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -113,6 +116,34 @@ public class Utils {
         return in;
     }
     
+    /**
+     * Returns whether the given relative path (in the project source) exists
+     * @param path The path to the eg. 'resources/roads.txt'
+     * @return Whether the file can be found
+     */
+    public static boolean hasFile(String path) {
+        return Utils.class.getClassLoader().getResource(path) != null;
+    }
+
+    /**
+     * Returns the file system path of the given relative path (in the project
+     * source), for when a stream is not enough (eg. memory mapping)
+     * @param path The path to the eg. 'resources/roads.txt'
+     * @return The file system path of the file
+     * @throws classes.Utils.LoadFileException
+     */
+    public static Path getFilePath(String path) throws LoadFileException {
+        URL url = Utils.class.getClassLoader().getResource(path);
+        if (url == null) {
+            throw new LoadFileException("Unknown file path: '"+path+"'", path);
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | FileSystemNotFoundException ex) {
+            throw new LoadFileException("The file '"+path+"' is not on the file system", path);
+        }
+    }
+
     /**
      * Attempts to return the current working directory
      * @return 
@@ -0,0 +1,12 @@
+package enums;
+
+/**
+ * The IndexType enum lists the spatial indices the model can keep its roads in
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public enum IndexType {
+    QuadTree, // Roads are inserted one at a time (see QuadTree)
+    LooseQuadTree, // As above, but roads on the split lines still go down
+    RTree; // Roads are packed into a tree once they are all loaded (see RTree)
+}
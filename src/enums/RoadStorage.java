@@ -0,0 +1,12 @@
+package enums;
+
+/**
+ * The RoadStorage enum lists the ways the model can keep its roads in memory
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public enum RoadStorage {
+    Objects, // As the loaded Road objects
+    Columns, // In a road store with float coordinates
+    Quantized; // In a road store with delta-encoded fixed-point coordinates
+}
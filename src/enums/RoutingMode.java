@@ -0,0 +1,14 @@
+package enums;
+
+/**
+ * The RoutingMode enum lists the algorithms the routing service can answer
+ * route queries with
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public enum RoutingMode {
+    AStar, // A* on the graph with a straight-line heuristic
+    Landmarks, // A* with lower bounds from the drive times to landmarks
+    Bidirectional, // Dijkstra from both the source and the target
+    Hierarchy; // Bidirectional search in a contraction hierarchy
+}
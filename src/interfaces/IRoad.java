@@ -0,0 +1,33 @@
+package interfaces;
+
+import classes.Rect;
+import classes.Road;
+import enums.RoadType;
+
+/**
+ * The IRoad interface is what the map needs to know about a road, so that
+ * roads can be stored either as Road objects or in a compact road store
+ * (see RoadStore). The vertices of a road are numbered 0 until nodeCount(),
+ * and segment i goes from vertex i to vertex i+1. Use a SegmentCursor to walk
+ * the segments without allocating.
+ * @author agent
+ * @version 18-Oct-2026
+ */
+public interface IRoad extends QuadNode {
+    public RoadType getType();
+    public String getName();
+    public short getZipCode();
+    public short getSpeedLimit();
+    public boolean isOneway();
+    public Rect getBounds();
+    public int nodeCount();               // The number of vertices
+    public int segmentCount();            // nodeCount() - 1
+    public float getX(int i);             // The coordinates of a vertex
+    public float getY(int i);
+    public void getCoordinates(float[] xs, float[] ys); // All of them, at once
+    public void getDetailLevels(byte[] levels, int offset); // See DetailLevels
+    public int getNodeIndex(int i);       // The dense index of a vertex's node
+    public Road.Node getNode(int i);      // The node of a vertex
+    public float getDriveTime(int segment); // In minutes
+    public Road toRoad();                 // The road as a Road object
+}
@@ -10,4 +10,5 @@ import classes.Rect;
  */
 public interface QuadNode {
     public boolean collidesWith(Rect area);
+    public Rect getBounds(); // Used to place the node in a loose QuadTree
 }
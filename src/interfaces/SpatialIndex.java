@@ -0,0 +1,17 @@
+package interfaces;
+
+import classes.Rect;
+
+/**
+ * The SpatialIndex interface is what the model needs of a structure that
+ * finds the nodes in an area, so that it can use either a QuadTree or an
+ * RTree.
+ * @author agent
+ * @version 18-Oct-2026
+ * @param <T> The type of node in the index
+ */
+public interface SpatialIndex<T extends QuadNode> {
+    public void add(T node);
+    public void build(); // Called once all nodes have been added
+    public void getIn(Rect area, StreamedContainer<? super T> target);
+}
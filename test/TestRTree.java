@@ -0,0 +1,113 @@
+
+import classes.RTree;
+import classes.Rect;
+import classes.Road;
+import enums.RoadType;
+import interfaces.IProgressBar;
+import interfaces.IRoad;
+import interfaces.StreamedContainer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author agent
+ */
+public class TestRTree {
+
+    private static class ResultHelper<T> implements StreamedContainer<T>{
+        public ArrayList<T> results = new ArrayList<>();
+        @Override
+        public void startStream() {}
+        @Override
+        public void startStream(IProgressBar bar) {}
+        @Override
+        public void add(T obj) {
+            results.add(obj);
+        }
+        @Override
+        public void endStream() {}
+    }
+
+    private static Road road(float x, float y, float w, float h) {
+        Road.Node[] nodes = new Road.Node[] {
+            new Road.Node(0, 0, x, y), new Road.Node(1, 1, x + w, y + h)
+        };
+        return new Road("", RoadType.Other, (short)0, (short)50, false, nodes,
+                new float[0], new Rect(x, y, w, h));
+    }
+
+    public RTree<IRoad> A;
+    public RTree<IRoad> B;
+    public ArrayList<Road> roads;
+
+    @Before
+    public void setUp() {
+        A = new RTree<>();
+        A.build();
+
+        B = new RTree<>(4);
+        roads = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Road r = road(random.nextFloat() * 100, random.nextFloat() * 100,
+                    random.nextFloat() * 5, random.nextFloat() * 5);
+            roads.add(r);
+            B.add(r);
+        }
+        B.build();
+    }
+
+    @Test
+    public void testEmpty() {
+        ResultHelper result = new ResultHelper();
+        A.getIn(new Rect(0,0,10,10), result);
+        assertEquals(result.results.size(), 0);
+    }
+
+    @Test
+    public void testAll() {
+        ResultHelper result = new ResultHelper();
+        B.getIn(new Rect(-1,-1,200,200), result);
+        assertEquals(result.results.size(), 1000);
+        assertEquals(new HashSet<>(result.results).size(), 1000);
+    }
+
+    @Test
+    public void testSameAsScan() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            Rect area = new Rect(random.nextFloat() * 100, random.nextFloat() * 100,
+                    random.nextFloat() * 30, random.nextFloat() * 30);
+            ResultHelper<IRoad> result = new ResultHelper<>();
+            B.getIn(area, result);
+            HashSet<IRoad> expected = new HashSet<>();
+            for (Road r : roads) {
+                if (r.collidesWith(area)) {
+                    expected.add(r);
+                }
+            }
+            assertEquals(result.results.size(), expected.size());
+            assertEquals(new HashSet<>(result.results), expected);
+        }
+    }
+
+    @Test
+    public void testTouching() {
+        RTree<IRoad> C = new RTree<>();
+        C.add(road(0, 0, 1, 1));
+        C.build();
+        ResultHelper result = new ResultHelper();
+        C.getIn(new Rect(1, 1, 1, 1), result); // Only the corners meet
+        assertEquals(result.results.size(), 0);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddAfterBuild() {
+        B.add(road(0, 0, 1, 1));
+    }
+}